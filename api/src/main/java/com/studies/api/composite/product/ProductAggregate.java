@@ -1,5 +1,7 @@
 package com.studies.api.composite.product;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class ProductAggregate {
@@ -9,6 +11,9 @@ public class ProductAggregate {
     private final List<RecommendationSummary> recommendations;
     private final List<ReviewSummary> reviews;
     private final ServiceAddresses serviceAddresses;
+    private final Integer nextRecommendationCursor;
+    private final Integer nextReviewCursor;
+    private final String etag;
 
     public ProductAggregate() {
         productId = 0;
@@ -17,6 +22,9 @@ public class ProductAggregate {
         recommendations = null;
         reviews = null;
         serviceAddresses = null;
+        nextRecommendationCursor = null;
+        nextReviewCursor = null;
+        etag = null;
     }
 
     public ProductAggregate(
@@ -27,12 +35,29 @@ public class ProductAggregate {
         List<ReviewSummary> reviews,
         ServiceAddresses serviceAddresses) {
 
+        this(productId, name, weight, recommendations, reviews, serviceAddresses, null, null, null);
+    }
+
+    public ProductAggregate(
+        int productId,
+        String name,
+        int weight,
+        List<RecommendationSummary> recommendations,
+        List<ReviewSummary> reviews,
+        ServiceAddresses serviceAddresses,
+        Integer nextRecommendationCursor,
+        Integer nextReviewCursor,
+        String etag) {
+
         this.productId = productId;
         this.name = name;
         this.weight = weight;
         this.recommendations = recommendations;
         this.reviews = reviews;
         this.serviceAddresses = serviceAddresses;
+        this.nextRecommendationCursor = nextRecommendationCursor;
+        this.nextReviewCursor = nextReviewCursor;
+        this.etag = etag;
     }
 
     public int getProductId() {
@@ -58,4 +83,26 @@ public class ProductAggregate {
     public ServiceAddresses getServiceAddresses() {
         return serviceAddresses;
     }
+
+    /**
+     * The cursor to get the next page of recommendations with, null if there are no more.
+     */
+    public Integer getNextRecommendationCursor() {
+        return nextRecommendationCursor;
+    }
+
+    /**
+     * The cursor to get the next page of reviews with, null if there are no more.
+     */
+    public Integer getNextReviewCursor() {
+        return nextReviewCursor;
+    }
+
+    /**
+     * The ETag of the aggregate, based on the versions of the entities it is composed of. Sent as a header, not in the body.
+     */
+    @JsonIgnore
+    public String getEtag() {
+        return etag;
+    }
 }
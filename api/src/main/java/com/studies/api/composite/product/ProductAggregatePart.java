@@ -0,0 +1,92 @@
+package com.studies.api.composite.product;
+
+/**
+ * One element of a streamed product aggregate.
+ * <p>
+ * A stream starts with a single PRODUCT part, followed by RECOMMENDATION and REVIEW parts in the order they arrive
+ * from the backends. Only the field matching the type of the part is set.
+ */
+public class ProductAggregatePart {
+
+    public enum Type {
+        PRODUCT,
+        RECOMMENDATION,
+        REVIEW
+    }
+
+    private final Type type;
+    private final int productId;
+    private final String name;
+    private final int weight;
+    private final RecommendationSummary recommendation;
+    private final ReviewSummary review;
+    private final String serviceAddress;
+
+    public ProductAggregatePart() {
+        this.type = null;
+        this.productId = 0;
+        this.name = null;
+        this.weight = 0;
+        this.recommendation = null;
+        this.review = null;
+        this.serviceAddress = null;
+    }
+
+    public ProductAggregatePart(int productId, String name, int weight, String serviceAddress) {
+        this.type = Type.PRODUCT;
+        this.productId = productId;
+        this.name = name;
+        this.weight = weight;
+        this.recommendation = null;
+        this.review = null;
+        this.serviceAddress = serviceAddress;
+    }
+
+    public ProductAggregatePart(int productId, RecommendationSummary recommendation, String serviceAddress) {
+        this.type = Type.RECOMMENDATION;
+        this.productId = productId;
+        this.name = null;
+        this.weight = 0;
+        this.recommendation = recommendation;
+        this.review = null;
+        this.serviceAddress = serviceAddress;
+    }
+
+    public ProductAggregatePart(int productId, ReviewSummary review, String serviceAddress) {
+        this.type = Type.REVIEW;
+        this.productId = productId;
+        this.name = null;
+        this.weight = 0;
+        this.recommendation = null;
+        this.review = review;
+        this.serviceAddress = serviceAddress;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public RecommendationSummary getRecommendation() {
+        return recommendation;
+    }
+
+    public ReviewSummary getReview() {
+        return review;
+    }
+
+    public String getServiceAddress() {
+        return serviceAddress;
+    }
+}
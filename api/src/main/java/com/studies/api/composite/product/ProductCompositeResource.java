@@ -5,8 +5,11 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Api("REST API for composite product information.")
 public interface ProductCompositeResource {
 
@@ -32,9 +35,13 @@ public interface ProductCompositeResource {
     Mono<Void> createCompositeProduct(@RequestBody ProductAggregate body);
 
     /**
-     * Sample usage: curl $HOST:$PORT/product-composite/1
+     * Sample usage: curl $HOST:$PORT/product-composite/1?fields=reviews&pageSize=20&reviewCursor=40
      *
      * @param productId
+     * @param fields the optional parts of the aggregate to include, "recommendations" and/or "reviews", all if not set
+     * @param pageSize the max number of recommendations and reviews to include, all if 0
+     * @param recommendationCursor the nextRecommendationCursor of the previous page
+     * @param reviewCursor the nextReviewCursor of the previous page
      * @return the composite product info, if found, else null
      */
     @ApiOperation(
@@ -51,7 +58,48 @@ public interface ProductCompositeResource {
     Mono<ProductAggregate> getCompositeProduct(
             @PathVariable int productId,
             @RequestParam(value = "delay", required = false, defaultValue = "0") int delay,
-            @RequestParam(value = "faultPercent", required = false, defaultValue = "0") int faultPercent);
+            @RequestParam(value = "faultPercent", required = false, defaultValue = "0") int faultPercent,
+            @RequestParam(value = "fields", required = false) List<String> fields,
+            @RequestParam(value = "pageSize", required = false, defaultValue = "0") int pageSize,
+            @RequestParam(value = "recommendationCursor", required = false, defaultValue = "0") int recommendationCursor,
+            @RequestParam(value = "reviewCursor", required = false, defaultValue = "0") int reviewCursor);
+
+    /**
+     * Sample usage: curl -H "Accept: text/event-stream" $HOST:$PORT/product-composite/1/stream
+     *
+     * @param productId
+     * @return the product info, followed by its recommendations and reviews as they arrive
+     */
+    @ApiOperation(
+            value = "${api.product-composite.stream-composite-product.description}",
+            notes = "${api.product-composite.stream-composite-product.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Bad Request, invalid format of the request. See response message for more information."),
+            @ApiResponse(code = 404, message = "Not found, the specified id does not exist."),
+            @ApiResponse(code = 422, message = "Unprocessable entity, input parameters caused the processing to fail. See response message for more information.")
+    })
+    @GetMapping(
+            value = "/product-composite/{productId}/stream",
+            produces = {"application/stream+json", "text/event-stream"})
+    Flux<ProductAggregatePart> streamCompositeProduct(@PathVariable int productId);
+
+    /**
+     * Sample usage: curl $HOST:$PORT/product-composite?ids=1,2,3
+     *
+     * @param productIds
+     * @return the composite product info of the products found, in the requested order
+     */
+    @ApiOperation(
+            value = "${api.product-composite.get-composite-products.description}",
+            notes = "${api.product-composite.get-composite-products.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Bad Request, invalid format of the request. See response message for more information."),
+            @ApiResponse(code = 422, message = "Unprocessable entity, input parameters caused the processing to fail. See response message for more information.")
+    })
+    @GetMapping(
+            value = "/product-composite",
+            produces = "application/json")
+    Flux<ProductAggregate> getCompositeProducts(@RequestParam(value = "ids") List<Integer> productIds);
 
     /**
      * Sample usage:
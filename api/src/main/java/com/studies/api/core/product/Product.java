@@ -5,12 +5,14 @@ public class Product {
     private String name;
     private int weight;
     private String serviceAddress;
+    private int version;
 
     public Product() {
         productId = 0;
         name = null;
         weight = 0;
         serviceAddress = null;
+        version = 0;
     }
 
     public Product(int productId, String name, int weight, String serviceAddress) {
@@ -51,4 +53,15 @@ public class Product {
     public void setServiceAddress(String serviceAddress) {
         this.serviceAddress = serviceAddress;
     }
+
+    /**
+     * The optimistic locking version of the entity, changes with every update.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -4,11 +4,14 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface ProductResource {
 
-    Product createProduct(@RequestBody Product body);
+    Mono<Product> createProduct(@RequestBody Product body);
 
     /**
      * Sample usage: curl $HOST:$PORT/product/1
@@ -25,6 +28,17 @@ public interface ProductResource {
             @RequestParam(value = "faultPercent", required = false, defaultValue = "0") int faultPercent
     );
 
-    void deleteProduct(@PathVariable int productId);
+    /**
+     * Sample usage: curl $HOST:$PORT/product?ids=1,2,3
+     *
+     * @param productIds
+     * @return the products found, ids without a product are left out
+     */
+    @GetMapping(
+            value = "/product",
+            produces = "application/json")
+    Flux<Product> getProducts(@RequestParam(value = "ids") List<Integer> productIds);
+
+    Mono<Void> deleteProduct(@PathVariable int productId);
 
 }
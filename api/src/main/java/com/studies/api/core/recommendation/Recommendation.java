@@ -7,6 +7,7 @@ public class Recommendation {
     private int rate;
     private String content;
     private String serviceAddress;
+    private int version;
 
     public Recommendation() {
         productId = 0;
@@ -15,6 +16,7 @@ public class Recommendation {
         rate = 0;
         content = null;
         serviceAddress = null;
+        version = 0;
     }
 
     public Recommendation(int productId, int recommendationId, String author, int rate, String content, String serviceAddress) {
@@ -73,4 +75,15 @@ public class Recommendation {
     public void setServiceAddress(String serviceAddress) {
         this.serviceAddress = serviceAddress;
     }
+
+    /**
+     * The optimistic locking version of the entity, changes with every update.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -4,22 +4,42 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 public interface RecommendationResource {
 
-    Recommendation createRecommendation(@RequestBody Recommendation body);
+    Mono<Recommendation> createRecommendation(@RequestBody Recommendation body);
 
     /**
-     * Sample usage: curl $HOST:$PORT/recommendation?productId=1
+     * Sample usage: curl $HOST:$PORT/recommendation?productId=1&pageSize=10&cursor=20
      *
      * @param productId
-     * @return
+     * @param pageSize the max number of recommendations to return, all if 0
+     * @param cursor only recommendations with a higher recommendationId are returned
+     * @return the recommendations of the product, ordered by recommendationId
+     */
+    @GetMapping(
+            value = "/recommendation",
+            produces = "application/json")
+    Flux<Recommendation> getRecommendations(
+            @RequestParam(value = "productId") int productId,
+            @RequestParam(value = "pageSize", required = false, defaultValue = "0") int pageSize,
+            @RequestParam(value = "cursor", required = false, defaultValue = "0") int cursor);
+
+    /**
+     * Sample usage: curl $HOST:$PORT/recommendation?productIds=1,2,3
+     *
+     * @param productIds
+     * @return the recommendations of all the given products
      */
     @GetMapping(
             value = "/recommendation",
+            params = "productIds",
             produces = "application/json")
-    Flux<Recommendation> getRecommendations(@RequestParam(value = "productId") int productId);
+    Flux<Recommendation> getRecommendationsForProducts(@RequestParam(value = "productIds") List<Integer> productIds);
 
-    void deleteRecommendations(@RequestParam(value = "productId") int productId);
+    Mono<Void> deleteRecommendations(@RequestParam(value = "productId") int productId);
 
 }
@@ -7,6 +7,7 @@ public class Review {
     private String subject;
     private String content;
     private String serviceAddress;
+    private int version;
 
     public Review() {
         productId = 0;
@@ -15,6 +16,7 @@ public class Review {
         subject = null;
         content = null;
         serviceAddress = null;
+        version = 0;
     }
 
     public Review(int productId, int reviewId, String author, String subject, String content, String serviceAddress) {
@@ -73,4 +75,15 @@ public class Review {
     public void setServiceAddress(String serviceAddress) {
         this.serviceAddress = serviceAddress;
     }
+
+    /**
+     * The optimistic locking version of the entity, changes with every update.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -4,21 +4,41 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 public interface ReviewResource {
 
-    Review createReview(@RequestBody Review body);
+    Mono<Review> createReview(@RequestBody Review body);
 
     /**
-     * Sample usage: curl $HOST:$PORT/review?productId=1
+     * Sample usage: curl $HOST:$PORT/review?productId=1&pageSize=10&cursor=20
      *
      * @param productId
-     * @return
+     * @param pageSize the max number of reviews to return, all if 0
+     * @param cursor only reviews with a higher reviewId are returned
+     * @return the reviews of the product, ordered by reviewId
+     */
+    @GetMapping(
+            value = "/review",
+            produces = "application/json")
+    Flux<Review> getReviews(
+            @RequestParam(value = "productId") int productId,
+            @RequestParam(value = "pageSize", required = false, defaultValue = "0") int pageSize,
+            @RequestParam(value = "cursor", required = false, defaultValue = "0") int cursor);
+
+    /**
+     * Sample usage: curl $HOST:$PORT/review?productIds=1,2,3
+     *
+     * @param productIds
+     * @return the reviews of all the given products
      */
     @GetMapping(
             value = "/review",
+            params = "productIds",
             produces = "application/json")
-    Flux<Review> getReviews(@RequestParam(value = "productId") int productId);
+    Flux<Review> getReviewsForProducts(@RequestParam(value = "productIds") List<Integer> productIds);
 
-    void deleteReviews(@RequestParam(value = "productId") int productId);
+    Mono<Void> deleteReviews(@RequestParam(value = "productId") int productId);
 }
\ No newline at end of file
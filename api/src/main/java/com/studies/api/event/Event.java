@@ -1,22 +1,29 @@
 package com.studies.api.event;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static java.time.LocalDateTime.now;
 
 public class Event<K, T> {
 
-    public enum Type {CREATE, DELETE}
+    /**
+     * CREATE_BATCH events carry all entities to create in {@code batch} instead of {@code data}, so that they can be
+     * created in one bulk write by the consumer.
+     */
+    public enum Type {CREATE, CREATE_BATCH, DELETE}
 
     private Type eventType;
     private K key;
     private T data;
+    private List<T> batch;
     private LocalDateTime eventCreatedAt;
 
     public Event() {
         this.eventType = null;
         this.key = null;
         this.data = null;
+        this.batch = null;
         this.eventCreatedAt = null;
     }
 
@@ -24,6 +31,15 @@ public class Event<K, T> {
         this.eventType = eventType;
         this.key = key;
         this.data = data;
+        this.batch = null;
+        this.eventCreatedAt = now();
+    }
+
+    public Event(Type eventType, K key, List<T> batch) {
+        this.eventType = eventType;
+        this.key = key;
+        this.data = null;
+        this.batch = batch;
         this.eventCreatedAt = now();
     }
 
@@ -39,6 +55,10 @@ public class Event<K, T> {
         return data;
     }
 
+    public List<T> getBatch() {
+        return batch;
+    }
+
     public LocalDateTime getEventCreatedAt() {
         return eventCreatedAt;
     }
@@ -0,0 +1,87 @@
+package com.studies.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Retries of failed backend calls, capped by one {@link RequestBudget} shared by all backends.
+ * <p>
+ * Every call deposits into the budget and every retry has to withdraw from it, so retries can't add more than the
+ * configured percentage of load on top of the calls themselves. When a backend degrades and most calls fail, the
+ * budget runs dry and failures are returned right away, instead of every call being retried and the load on the
+ * backend multiplied.
+ * <p>
+ * Only server errors are retried. Calls that were shed by the {@link ConcurrencyLimiter} or not permitted by a
+ * circuit breaker are not. The retries run inside the circuit breaker of the calling method, so the breaker only
+ * counts a failure once all attempts of a call have failed.
+ */
+@Component
+public class BudgetedRetry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BudgetedRetry.class);
+
+    private final MeterRegistry registry;
+    private final int maxAttempts;
+    private final Duration wait;
+    private final RequestBudget budget;
+
+    @Autowired
+    public BudgetedRetry(
+            MeterRegistry registry,
+            @Value("${app.retry.maxAttempts:3}") int maxAttempts,
+            @Value("${app.retry.waitMs:1000}") int waitMs,
+            @Value("${app.retry.budgetPercent:10}") int budgetPercent,
+            @Value("${app.retry.maxBurst:10}") int maxBurst
+    ) {
+        LOG.info("Creates a budgeted retry, maxAttempts: {}, waitMs: {}, budgetPercent: {}, maxBurst: {}", maxAttempts, waitMs, budgetPercent, maxBurst);
+
+        this.registry = registry;
+        this.maxAttempts = maxAttempts;
+        this.wait = Duration.ofMillis(waitMs);
+        this.budget = new RequestBudget(budgetPercent / 100.0, maxBurst);
+
+        registry.gauge("product-composite.retry.budget", budget, RequestBudget::getTokens);
+    }
+
+    public <T> Mono<T> retry(String backendName, Mono<T> call) {
+        return retry(backendName, call.flux()).singleOrEmpty();
+    }
+
+    public <T> Flux<T> retry(String backendName, Flux<T> call) {
+
+        return Flux.defer(() -> {
+            budget.onRequest();
+
+            return call.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                Throwable failure = signal.failure();
+
+                // maxAttempts counts the first call as well
+                if (signal.totalRetries() + 1 >= maxAttempts || !isRetryable(failure)) return Mono.error(failure);
+
+                if (!budget.tryAcquire()) {
+                    LOG.debug("No retry budget left to retry a failed {} call: {}", backendName, failure.toString());
+                    registry.counter("product-composite.retry.budget-exhausted", "backend", backendName).increment();
+                    return Mono.error(failure);
+                }
+
+                LOG.debug("Retries a failed {} call in {} ms, retry #{}: {}", backendName, wait.toMillis(), signal.totalRetries() + 1, failure.toString());
+                registry.counter("product-composite.retry.retries", "backend", backendName).increment();
+                return Mono.delay(wait);
+            })));
+        });
+    }
+
+    private boolean isRetryable(Throwable error) {
+        return error instanceof WebClientResponseException && ((WebClientResponseException) error).getStatusCode().is5xxServerError();
+    }
+}
@@ -0,0 +1,152 @@
+package com.studies.microservices.composite.product.services;
+
+import com.studies.util.exceptions.InvalidInputException;
+import com.studies.util.exceptions.NotFoundException;
+import com.studies.util.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adaptive limits on the number of concurrent calls per backend.
+ * <p>
+ * The limits follow AIMD, additive increase and multiplicative decrease: every call that completes within the latency
+ * threshold while the limit is in use raises the limit by one, every call that is slower or fails with anything but
+ * a client error lowers it by the backoff ratio. Calls over the limit are shed right away with a
+ * {@link ServiceOverloadedException} instead of piling up as in-flight requests to a backend that is already slow.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private final Map<String, Backend> backends = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConcurrencyLimiter(
+            MeterRegistry registry,
+            @Value("${app.concurrency-limit.enabled:true}") boolean enabled,
+            @Value("${app.concurrency-limit.initialLimit:20}") int initialLimit,
+            @Value("${app.concurrency-limit.minLimit:5}") int minLimit,
+            @Value("${app.concurrency-limit.maxLimit:200}") int maxLimit,
+            @Value("${app.concurrency-limit.backoffRatio:0.9}") double backoffRatio,
+            @Value("${app.concurrency-limit.latencyThresholdMs:1000}") int latencyThresholdMs
+    ) {
+        LOG.info("Creates a concurrency limiter, enabled: {}, initialLimit: {}, minLimit: {}, maxLimit: {}, backoffRatio: {}, latencyThresholdMs: {}",
+                enabled, initialLimit, minLimit, maxLimit, backoffRatio, latencyThresholdMs);
+
+        this.registry = registry;
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+    }
+
+    public <T> Mono<T> limit(String backendName, Mono<T> call) {
+        return limit(backendName, call.flux()).singleOrEmpty();
+    }
+
+    public <T> Flux<T> limit(String backendName, Flux<T> call) {
+
+        if (!enabled) return call;
+
+        Backend backend = backends.computeIfAbsent(backendName, Backend::new);
+
+        return Flux.defer(() -> {
+            if (!backend.tryAcquire()) {
+                LOG.debug("Sheds a {} call, {} calls in flight at a limit of {}", backendName, backend.getInFlight(), backend.getLimit());
+                backend.rejections.increment();
+                return Flux.error(new ServiceOverloadedException("Too many concurrent calls to the " + backendName + " service"));
+            }
+
+            long start = System.nanoTime();
+            AtomicBoolean released = new AtomicBoolean();
+
+            return call
+                    .doOnEach(signal -> {
+                        if ((signal.isOnComplete() || signal.isOnError()) && released.compareAndSet(false, true)) {
+                            boolean dropped = signal.isOnError() && isOverload(signal.getThrowable());
+                            backend.release(System.nanoTime() - start, dropped);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        // Cancelled calls, e.g. the slower one of a hedged pair, tell nothing about the limit
+                        if (released.compareAndSet(false, true)) backend.release();
+                    });
+        });
+    }
+
+    private boolean isOverload(Throwable error) {
+        if (error instanceof NotFoundException || error instanceof InvalidInputException) return false;
+        if (error instanceof WebClientResponseException) return !((WebClientResponseException) error).getStatusCode().is4xxClientError();
+        return true;
+    }
+
+    private class Backend {
+
+        private final Counter rejections;
+        private double limit = initialLimit;
+        private int inFlight;
+
+        Backend(String name) {
+            this.rejections = registry.counter("product-composite.concurrency-limit.rejections", "backend", name);
+            registry.gauge("product-composite.concurrency-limit.limit", Tags.of("backend", name), this, Backend::getLimit);
+            registry.gauge("product-composite.concurrency-limit.in-flight", Tags.of("backend", name), this, Backend::getInFlight);
+        }
+
+        synchronized boolean tryAcquire() {
+            if (inFlight >= (int) limit) return false;
+
+            inFlight++;
+            return true;
+        }
+
+        synchronized void release(long latencyNanos, boolean dropped) {
+
+            if (dropped || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+
+            } else if (inFlight * 2 >= limit) {
+                // Only raised while at least half of the limit is in use, an idle backend says nothing about a higher limit
+                limit = Math.min(maxLimit, limit + 1);
+            }
+
+            inFlight--;
+        }
+
+        synchronized void release() {
+            inFlight--;
+        }
+
+        synchronized double getLimit() {
+            return (int) limit;
+        }
+
+        synchronized double getInFlight() {
+            return inFlight;
+        }
+    }
+}
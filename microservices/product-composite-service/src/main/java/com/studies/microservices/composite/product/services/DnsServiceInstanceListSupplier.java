@@ -0,0 +1,69 @@
+package com.studies.microservices.composite.product.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Lists the instances of a service as all addresses its name resolves to, re-resolved every {@code ttl}.
+ * <p>
+ * The services are found through DNS, by Docker Compose or Kubernetes, not through a discovery service. With a
+ * Kubernetes headless service the name resolves to every pod, otherwise to a single address, in which case the
+ * load balancer has nothing to choose from and the behaviour is the same as without it. If the name can't be resolved,
+ * it is passed on as is.
+ */
+public class DnsServiceInstanceListSupplier implements ServiceInstanceListSupplier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DnsServiceInstanceListSupplier.class);
+
+    private final String serviceId;
+    private final int port;
+    private final Mono<List<ServiceInstance>> instances;
+
+    public DnsServiceInstanceListSupplier(String serviceId, int port, Duration ttl) {
+        this.serviceId = serviceId;
+        this.port = port;
+        this.instances = Mono.fromCallable(this::resolve)
+                .subscribeOn(Schedulers.boundedElastic())
+                .cache(ttl);
+    }
+
+    @Override
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return instances.flux();
+    }
+
+    private List<ServiceInstance> resolve() {
+        try {
+            List<ServiceInstance> resolved = Arrays.stream(InetAddress.getAllByName(serviceId))
+                    .map(address -> (ServiceInstance) new DefaultServiceInstance(address.getHostAddress() + ":" + port, serviceId, address.getHostAddress(), port, false))
+                    .collect(toList());
+
+            LOG.debug("Resolved {} instances of {}", resolved.size(), serviceId);
+            return resolved;
+
+        } catch (UnknownHostException e) {
+            LOG.warn("Could not resolve {}, passes the name on as is: {}", serviceId, e.toString());
+            return singletonList(new DefaultServiceInstance(serviceId + ":" + port, serviceId, serviceId, port, false));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.studies.microservices.composite.product.services;
+
+import com.studies.api.event.Event;
+import com.studies.util.exceptions.EventProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Publishes events to the message broker without blocking the caller's thread.
+ * <p>
+ * The blocking {@link MessageChannel#send} is run on a small, dedicated pool of publisher threads. Sends that can't
+ * be started right away wait in a bounded queue; once it is full, further sends fail right away instead of piling up
+ * in memory. The bounded elastic scheduler queues tasks per thread, so {@code queueSize} is split evenly between the
+ * threads to bound the total. The returned Mono completes when the binder has handed the message over, which for synchronous Kafka
+ * producers means when the broker has acknowledged it.
+ */
+@Component
+public class EventPublisher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventPublisher.class);
+
+    private final Scheduler scheduler;
+    private final long sendTimeoutMs;
+
+    @Autowired
+    public EventPublisher(
+            @Value("${app.event-publisher.threads:4}") int threads,
+            @Value("${app.event-publisher.queueSize:1000}") int queueSize,
+            @Value("${app.event-publisher.sendTimeoutMs:5000}") long sendTimeoutMs
+    ) {
+        LOG.info("Creates an event publisher, threads: {}, queueSize: {}, sendTimeoutMs: {}", threads, queueSize, sendTimeoutMs);
+
+        this.scheduler = Schedulers.newBoundedElastic(threads, Math.max(1, queueSize / threads), "event-publisher");
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    public Mono<Void> publish(MessageChannel channel, Event<?, ?> event) {
+
+        return Mono.<Void>fromRunnable(() -> {
+            LOG.debug("Publishes a {} event for key: {}", event.getEventType(), event.getKey());
+
+            if (!channel.send(MessageBuilder.withPayload(event).build(), sendTimeoutMs)) {
+                throw new EventProcessingException("Failed to publish a " + event.getEventType() + " event for key: " + event.getKey() + " within " + sendTimeoutMs + " ms");
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
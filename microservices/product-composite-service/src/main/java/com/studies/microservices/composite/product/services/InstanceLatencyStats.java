@@ -0,0 +1,165 @@
+package com.studies.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Response times and outstanding requests per backend instance, as seen by this service, for the
+ * {@link PeakEwmaLoadBalancer}.
+ * <p>
+ * Latencies are kept as a peak EWMA: a response slower than the average replaces it right away, faster responses
+ * only pull it down gradually, with a decay time of {@code decayTimeMs}. An instance that starts pausing is avoided
+ * after its first slow response, but has to prove it has recovered before it gets its full share of traffic again.
+ * Like in Finagle, the average also decays towards zero while no responses come in, so an instance that was avoided
+ * after a slow response is tried again after a while instead of being starved for good.
+ * <p>
+ * The stats, and their gauges, of instances the load balancer no longer sees are dropped with {@link #evict}.
+ */
+@Component
+public class InstanceLatencyStats {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstanceLatencyStats.class);
+
+    private final MeterRegistry registry;
+    private final double decayTimeNanos;
+    private final double penaltyNanos;
+
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InstanceLatencyStats(
+            MeterRegistry registry,
+            @Value("${app.load-balancer.decayTimeMs:10000}") int decayTimeMs,
+            @Value("${app.load-balancer.penaltyMs:1000}") int penaltyMs
+    ) {
+        LOG.info("Creates instance latency stats, decayTimeMs: {}, penaltyMs: {}", decayTimeMs, penaltyMs);
+
+        this.registry = registry;
+        this.decayTimeNanos = TimeUnit.MILLISECONDS.toNanos(decayTimeMs);
+        this.penaltyNanos = TimeUnit.MILLISECONDS.toNanos(penaltyMs);
+    }
+
+    /**
+     * Returns the cost of sending a request to the instance, the expected latency weighted by the requests that are
+     * already outstanding to it. Instances without any response yet are free, unless they already have outstanding
+     * requests, in which case they cost a penalty until the first response comes back.
+     */
+    public double cost(String host, int port) {
+
+        Instance instance = instances.get(key(host, port));
+        if (instance == null) return 0;
+
+        synchronized (instance) {
+            // Decays as if a zero latency had been observed, the longer without responses, the lower the average
+            long now = System.nanoTime();
+            instance.ewmaNanos *= weight(instance, now);
+            instance.lastUpdateNanos = now;
+
+            int outstanding = instance.outstanding.get();
+            if (instance.ewmaNanos == 0 && outstanding > 0) return penaltyNanos + outstanding;
+
+            return instance.ewmaNanos * (outstanding + 1);
+        }
+    }
+
+    /**
+     * Records the latency and outstanding requests of every call, keyed by the host and port the load balancer has
+     * resolved the request to. Must be added to the WebClient after the load balancer filter.
+     */
+    public ExchangeFilterFunction recorder() {
+        return (request, next) -> Mono.defer(() -> {
+            URI url = request.url();
+            int port = url.getPort() != -1 ? url.getPort() : "https".equals(url.getScheme()) ? 443 : 80;
+            Instance instance = instances.computeIfAbsent(key(url.getHost(), port), this::newInstance);
+
+            long start = System.nanoTime();
+            AtomicBoolean done = new AtomicBoolean();
+            instance.outstanding.incrementAndGet();
+
+            return next.exchange(request)
+                    .doOnEach(signal -> {
+                        if (!signal.isOnSubscribe() && done.compareAndSet(false, true)) {
+                            instance.outstanding.decrementAndGet();
+                            observe(instance, System.nanoTime() - start);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (done.compareAndSet(false, true)) instance.outstanding.decrementAndGet();
+                    });
+        });
+    }
+
+    /**
+     * Records a response time of the instance, for calls that are not made through a WebClient with the {@link #recorder()}.
+     */
+    public void observe(String host, int port, long latencyNanos) {
+        observe(instances.computeIfAbsent(key(host, port), this::newInstance), latencyNanos);
+    }
+
+    /**
+     * Drops the stats of an instance that is gone, e.g. after a scale down.
+     */
+    public void evict(String host, int port) {
+        Instance instance = instances.remove(key(host, port));
+        if (instance == null) return;
+
+        LOG.debug("Evicts the latency stats of instance: {}", key(host, port));
+        instance.gauges.forEach(registry::remove);
+    }
+
+    private void observe(Instance instance, long latencyNanos) {
+
+        synchronized (instance) {
+            long now = System.nanoTime();
+            double ewma = instance.ewmaNanos;
+
+            // The longer since the last response, the less weight the old average has
+            instance.ewmaNanos = latencyNanos > ewma ? latencyNanos : ewma + (latencyNanos - ewma) * (1 - weight(instance, now));
+            instance.lastUpdateNanos = now;
+        }
+    }
+
+    private double weight(Instance instance, long now) {
+        return Math.exp(-(now - instance.lastUpdateNanos) / decayTimeNanos);
+    }
+
+    private Instance newInstance(String key) {
+        Instance instance = new Instance();
+        instance.gauges.add(Gauge.builder("product-composite.load-balancer.latency-ewma", instance, i -> i.ewmaNanos / 1_000_000.0)
+                .tags(Tags.of("instance", key))
+                .register(registry));
+        instance.gauges.add(Gauge.builder("product-composite.load-balancer.outstanding", instance.outstanding, AtomicInteger::get)
+                .tags(Tags.of("instance", key))
+                .register(registry));
+        return instance;
+    }
+
+    private static String key(String host, int port) {
+        return host + ":" + port;
+    }
+
+    private static class Instance {
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final List<Meter> gauges = new ArrayList<>(2);
+        private double ewmaNanos;
+        private long lastUpdateNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,82 @@
+package com.studies.microservices.composite.product.services;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.Request;
+import org.springframework.cloud.client.loadbalancer.reactive.Response;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Chooses between two randomly picked instances, the one with the lowest cost according to {@link InstanceLatencyStats},
+ * i.e. the lowest peak EWMA latency weighted by its outstanding requests.
+ * <p>
+ * Comparing two random instances instead of always taking the cheapest one keeps all requests from piling onto the
+ * same instance between two updates of the stats, while still steering clear of a slow instance.
+ * <p>
+ * Instances that drop out of the list of the supplier have their stats evicted.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final InstanceLatencyStats stats;
+    private final AtomicReference<List<ServiceInstance>> knownInstances = new AtomicReference<>(emptyList());
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, InstanceLatencyStats stats) {
+        this.supplierProvider = supplierProvider;
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable();
+        if (supplier == null) return Mono.just(new EmptyResponse());
+
+        return supplier.get().next().map(this::choose);
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+
+        evictRemoved(instances);
+
+        if (instances.isEmpty()) return new EmptyResponse();
+        if (instances.size() == 1) return new DefaultResponse(instances.get(0));
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) second++;
+
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(cost(a) <= cost(b) ? a : b);
+    }
+
+    private void evictRemoved(List<ServiceInstance> instances) {
+
+        // The supplier hands out the same list until it resolves the instances again
+        List<ServiceInstance> previous = knownInstances.getAndSet(instances);
+        if (previous == instances) return;
+
+        previous.stream()
+                .filter(gone -> instances.stream().noneMatch(instance -> isSameAddress(instance, gone)))
+                .forEach(gone -> stats.evict(gone.getHost(), gone.getPort()));
+    }
+
+    private static boolean isSameAddress(ServiceInstance a, ServiceInstance b) {
+        return a.getHost().equals(b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    private double cost(ServiceInstance instance) {
+        return stats.cost(instance.getHost(), instance.getPort());
+    }
+}
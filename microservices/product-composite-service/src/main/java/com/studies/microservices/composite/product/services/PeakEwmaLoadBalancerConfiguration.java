@@ -0,0 +1,40 @@
+package com.studies.microservices.composite.product.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Load balancer configuration for every backend service, registered with {@code @LoadBalancerClients}.
+ * <p>
+ * Deliberately not a {@code @Configuration}, its beans are created once per service in the child context of the
+ * load balancer, where the name of the service is available as the {@link LoadBalancerClientFactory#PROPERTY_NAME}
+ * property.
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ServiceInstanceListSupplier dnsServiceInstanceListSupplier(
+            Environment environment,
+            @Value("${app.load-balancer.port:80}") int port,
+            @Value("${app.load-balancer.resolveTtlMs:5000}") int resolveTtlMs) {
+
+        return new DnsServiceInstanceListSupplier(environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME), port, Duration.ofMillis(resolveTtlMs));
+    }
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> peakEwmaLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            InstanceLatencyStats stats) {
+
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PeakEwmaLoadBalancer(loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), stats);
+    }
+}
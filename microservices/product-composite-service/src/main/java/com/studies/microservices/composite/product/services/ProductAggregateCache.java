@@ -0,0 +1,105 @@
+package com.studies.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.studies.api.composite.product.ProductAggregate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded, in-process cache of assembled product aggregates, keyed by productId.
+ * <p>
+ * Entries are invalidated by {@link ProductAggregateCacheInvalidator} when a product, recommendation or review event
+ * is seen for the product. Since the event can reach this service before the core services have processed it,
+ * aggregates loaded shortly after an invalidation are not cached until the quiet period has passed.
+ * <p>
+ * Hits, misses and evictions are exposed as the Micrometer "cache.*" metrics, tagged with cache=product-aggregates.
+ */
+@Component
+public class ProductAggregateCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCache.class);
+
+    private final boolean enabled;
+    private final Cache<Integer, ProductAggregate> cache;
+    private final Cache<Integer, Boolean> recentlyInvalidated;
+
+    @Autowired
+    public ProductAggregateCache(
+            MeterRegistry registry,
+            @Value("${app.aggregate-cache.enabled:true}") boolean enabled,
+            @Value("${app.aggregate-cache.maxSize:10000}") long maxSize,
+            @Value("${app.aggregate-cache.expireAfterWriteSec:300}") int expireAfterWriteSec,
+            @Value("${app.aggregate-cache.invalidationQuietPeriodMs:2000}") int invalidationQuietPeriodMs
+    ) {
+        LOG.info("Creates a product aggregate cache, enabled: {}, maxSize: {}, expireAfterWriteSec: {}", enabled, maxSize, expireAfterWriteSec);
+
+        this.enabled = enabled;
+        this.cache = CaffeineCacheMetrics.monitor(registry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSec))
+                .recordStats()
+                .<Integer, ProductAggregate>build(), "product-aggregates");
+        this.recentlyInvalidated = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(invalidationQuietPeriodMs))
+                .build();
+    }
+
+    /**
+     * Returns the cached aggregate for the product, or subscribes to the loader and caches its result.
+     * Errors from the loader are never cached.
+     */
+    public Mono<ProductAggregate> get(int productId, Supplier<Mono<ProductAggregate>> loader) {
+
+        if (!enabled) return Mono.defer(loader);
+
+        return Mono.defer(() -> {
+            ProductAggregate aggregate = cache.getIfPresent(productId);
+            if (aggregate != null) {
+                LOG.debug("Found a cached product aggregate for productId: {}", productId);
+                return Mono.just(aggregate);
+            }
+
+            return loader.get().doOnNext(loaded -> put(productId, loaded));
+        });
+    }
+
+    /**
+     * Returns the cached aggregate for the product, without loading it if it isn't cached.
+     */
+    public Optional<ProductAggregate> getIfPresent(int productId) {
+        return enabled ? Optional.ofNullable(cache.getIfPresent(productId)) : Optional.empty();
+    }
+
+    public void invalidate(int productId) {
+        LOG.debug("Invalidates the cached product aggregate for productId: {}", productId);
+        recentlyInvalidated.put(productId, Boolean.TRUE);
+        cache.invalidate(productId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private void put(int productId, ProductAggregate aggregate) {
+
+        // Skip aggregates that could have been assembled before the core services processed the latest changes
+        if (recentlyInvalidated.getIfPresent(productId) != null) {
+            LOG.debug("Product aggregate for productId: {} was recently invalidated, skips caching it", productId);
+            return;
+        }
+
+        cache.put(productId, aggregate);
+    }
+}
@@ -0,0 +1,73 @@
+package com.studies.microservices.composite.product.services;
+
+import com.studies.api.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.messaging.SubscribableChannel;
+
+/**
+ * Consumes the same destinations as {@link ProductCompositeIntegration.MessageSources} publishes to,
+ * and invalidates the cached aggregate of the product each event concerns. Product delete events also evict the
+ * product from the fallback cache, of this instance as well as of the others.
+ */
+@EnableBinding(ProductAggregateCacheInvalidator.MessageSinks.class)
+public class ProductAggregateCacheInvalidator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCacheInvalidator.class);
+
+    private final ProductAggregateCache aggregateCache;
+    private final ProductFallbackCache fallbackCache;
+
+    public interface MessageSinks {
+
+        String INPUT_PRODUCTS = "input-products";
+        String INPUT_RECOMMENDATIONS = "input-recommendations";
+        String INPUT_REVIEWS = "input-reviews";
+
+        @Input(INPUT_PRODUCTS)
+        SubscribableChannel inputProducts();
+
+        @Input(INPUT_RECOMMENDATIONS)
+        SubscribableChannel inputRecommendations();
+
+        @Input(INPUT_REVIEWS)
+        SubscribableChannel inputReviews();
+    }
+
+    @Autowired
+    public ProductAggregateCacheInvalidator(ProductAggregateCache aggregateCache, ProductFallbackCache fallbackCache) {
+        this.aggregateCache = aggregateCache;
+        this.fallbackCache = fallbackCache;
+    }
+
+    @StreamListener(target = MessageSinks.INPUT_PRODUCTS)
+    public void onProductEvent(Event<Integer, Object> event) {
+        invalidate("product", event);
+        if (event.getEventType() == Event.Type.DELETE && event.getKey() != null) fallbackCache.evict(event.getKey());
+    }
+
+    @StreamListener(target = MessageSinks.INPUT_RECOMMENDATIONS)
+    public void onRecommendationEvent(Event<Integer, Object> event) {
+        invalidate("recommendation", event);
+    }
+
+    @StreamListener(target = MessageSinks.INPUT_REVIEWS)
+    public void onReviewEvent(Event<Integer, Object> event) {
+        invalidate("review", event);
+    }
+
+    private void invalidate(String source, Event<Integer, Object> event) {
+
+        if (event.getKey() == null) {
+            LOG.warn("Got a {} {} event without a key, can't invalidate any cached aggregate", source, event.getEventType());
+            return;
+        }
+
+        LOG.debug("Got a {} {} event for productId: {}", source, event.getEventType(), event.getKey());
+        aggregateCache.invalidate(event.getKey());
+    }
+}
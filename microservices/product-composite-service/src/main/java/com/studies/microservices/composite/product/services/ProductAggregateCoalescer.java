@@ -0,0 +1,82 @@
+package com.studies.microservices.composite.product.services;
+
+import com.studies.api.composite.product.ProductAggregate;
+import com.studies.util.http.RequestDeadline;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Single flight request coalescing of product aggregate reads.
+ * <p>
+ * Concurrent reads for the same productId share one in-flight backend call, the first subscriber triggers it and
+ * the ones arriving before it terminates get the same result (or error). Nothing is kept once the call has
+ * terminated, that is left to {@link ProductAggregateCache}.
+ * <p>
+ * The shared call runs without the deadline of the request that triggered it, see {@link RequestDeadline}, so that a
+ * request with a short deadline doesn't fail the others. Each request gives up on its own deadline instead.
+ * <p>
+ * The number of subscribers folded into each upstream call is recorded in the
+ * "product-composite.coalescing.subscribers" distribution summary.
+ */
+@Component
+public class ProductAggregateCoalescer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCoalescer.class);
+
+    private final boolean enabled;
+    private final ConcurrentMap<Integer, InFlightCall> inFlightCalls = new ConcurrentHashMap<>();
+    private final DistributionSummary subscribersPerCall;
+
+    @Autowired
+    public ProductAggregateCoalescer(
+            MeterRegistry registry,
+            @Value("${app.request-coalescing.enabled:true}") boolean enabled
+    ) {
+        this.enabled = enabled;
+        this.subscribersPerCall = DistributionSummary.builder("product-composite.coalescing.subscribers")
+                .description("Number of product aggregate reads served by one upstream call")
+                .baseUnit("subscribers")
+                .register(registry);
+        registry.gaugeMapSize("product-composite.coalescing.in-flight", Tags.empty(), inFlightCalls);
+    }
+
+    public Mono<ProductAggregate> get(int productId, Supplier<Mono<ProductAggregate>> loader) {
+
+        if (!enabled) return Mono.defer(loader);
+
+        return Mono.defer(() -> {
+            InFlightCall call = inFlightCalls.computeIfAbsent(productId, id -> new InFlightCall(id, loader));
+            int subscribers = call.subscribers.incrementAndGet();
+            if (subscribers > 1) LOG.debug("Joins an in-flight call for productId: {}, subscribers: {}", productId, subscribers);
+            return RequestDeadline.timeout(call.result);
+        });
+    }
+
+    private class InFlightCall {
+
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private final Mono<ProductAggregate> result;
+
+        InFlightCall(int productId, Supplier<Mono<ProductAggregate>> loader) {
+            this.result = Mono.defer(loader)
+                    .subscriberContext(RequestDeadline::detach)
+                    .doFinally(signal -> {
+                        inFlightCalls.remove(productId, this);
+                        subscribersPerCall.record(subscribers.get());
+                    })
+                    .cache();
+        }
+    }
+}
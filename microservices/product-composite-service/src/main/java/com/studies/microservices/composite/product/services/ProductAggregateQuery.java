@@ -0,0 +1,53 @@
+package com.studies.microservices.composite.product.services;
+
+/**
+ * The parts of a product aggregate asked for by a request, and the page of recommendations and reviews to include.
+ * <p>
+ * Only queries for complete aggregates are cached, see {@link #isComplete()}.
+ */
+class ProductAggregateQuery {
+
+    static final ProductAggregateQuery COMPLETE = new ProductAggregateQuery(true, true, 0, 0, 0);
+
+    private final boolean includeRecommendations;
+    private final boolean includeReviews;
+    private final int pageSize;
+    private final int recommendationCursor;
+    private final int reviewCursor;
+
+    ProductAggregateQuery(boolean includeRecommendations, boolean includeReviews, int pageSize, int recommendationCursor, int reviewCursor) {
+        this.includeRecommendations = includeRecommendations;
+        this.includeReviews = includeReviews;
+        this.pageSize = pageSize;
+        this.recommendationCursor = recommendationCursor;
+        this.reviewCursor = reviewCursor;
+    }
+
+    boolean isIncludeRecommendations() {
+        return includeRecommendations;
+    }
+
+    boolean isIncludeReviews() {
+        return includeReviews;
+    }
+
+    int getPageSize() {
+        return pageSize;
+    }
+
+    int getRecommendationCursor() {
+        return recommendationCursor;
+    }
+
+    int getReviewCursor() {
+        return reviewCursor;
+    }
+
+    boolean isPaged() {
+        return pageSize > 0 || recommendationCursor > 0 || reviewCursor > 0;
+    }
+
+    boolean isComplete() {
+        return includeRecommendations && includeReviews && !isPaged();
+    }
+}
@@ -2,7 +2,6 @@ package com.studies.microservices.composite.product.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,7 +9,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.Output;
 import org.springframework.messaging.MessageChannel;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
@@ -24,16 +22,21 @@ import com.studies.api.core.recommendation.RecommendationResource;
 import com.studies.api.core.review.Review;
 import com.studies.api.core.review.ReviewResource;
 import com.studies.api.event.Event;
+import com.studies.util.exceptions.DeadlineExceededException;
 import com.studies.util.exceptions.InvalidInputException;
 import com.studies.util.exceptions.NotFoundException;
 import com.studies.util.http.HttpErrorInfo;
+import com.studies.util.http.RequestDeadline;
 
 import java.io.IOException;
 import java.net.URI;
 import java.time.Duration;
+import java.util.List;
 
+import static java.util.stream.Collectors.joining;
 import static reactor.core.publisher.Flux.empty;
 import static com.studies.api.event.Event.Type.CREATE;
+import static com.studies.api.event.Event.Type.CREATE_BATCH;
 import static com.studies.api.event.Event.Type.DELETE;
 
 @EnableBinding(ProductCompositeIntegration.MessageSources.class)
@@ -49,6 +52,11 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
     private final ObjectMapper mapper;
     private WebClient webClient;
     private MessageSources messageSources;
+    private final EventPublisher eventPublisher;
+    private final RequestHedger hedger;
+    private final InstanceLatencyStats latencyStats;
+    private final ConcurrencyLimiter limiter;
+    private final BudgetedRetry retry;
 
     private final int productServiceTimeoutSec;
 
@@ -73,24 +81,34 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
             WebClient.Builder webClientBuilder,
             ObjectMapper mapper,
             MessageSources messageSources,
+            EventPublisher eventPublisher,
+            RequestHedger hedger,
+            InstanceLatencyStats latencyStats,
+            ConcurrencyLimiter limiter,
+            BudgetedRetry retry,
             @Value("${app.product-service.timeoutSec}") int productServiceTimeoutSec
     ) {
 
         this.webClientBuilder = webClientBuilder;
         this.mapper = mapper;
         this.messageSources = messageSources;
+        this.eventPublisher = eventPublisher;
+        this.hedger = hedger;
+        this.latencyStats = latencyStats;
+        this.limiter = limiter;
+        this.retry = retry;
         this.productServiceTimeoutSec = productServiceTimeoutSec;
     }
 
     @Override
-    public Product createProduct(Product body) {
+    public Mono<Product> createProduct(Product body) {
+        return sendCreateProductEvent(body).thenReturn(body);
+    }
 
-        messageSources.outputProducts()
-                .send(MessageBuilder.withPayload(new Event(CREATE, body.getProductId(), body)).build());
-        return body;
+    public Mono<Void> sendCreateProductEvent(Product body) {
+        return eventPublisher.publish(messageSources.outputProducts(), new Event<Integer, Product>(CREATE, body.getProductId(), body));
     }
 
-    @Retry(name = "product")
     @CircuitBreaker(name = "product")
     @Override
     public Mono<Product> getProduct(int productId, int delay, int faultPercent) {
@@ -98,84 +116,176 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
         URI url = UriComponentsBuilder.fromUriString(productServiceUrl + "/product/{productId}?delay={delay}&faultPercent={faultPercent}").build(productId, delay, faultPercent);
         LOG.debug("Will call the getProduct API on URL: {}", url);
 
-        return getWebClient().get().uri(url)
+        return retry.retry("product", limiter.limit("product", getWebClient().get().uri(url)
                 .retrieve().bodyToMono(Product.class).log()
                 .onErrorMap(WebClientResponseException.class, ex -> handleException(ex))
-                .timeout(Duration.ofSeconds(productServiceTimeoutSec));
+                .timeout(Duration.ofSeconds(productServiceTimeoutSec))));
     }
 
+    @CircuitBreaker(name = "product")
     @Override
-    public void deleteProduct(int productId) {
-        messageSources.outputProducts()
-                .send(MessageBuilder.withPayload(new Event(DELETE, productId, null)).build());
+    public Flux<Product> getProducts(List<Integer> productIds) {
+
+        URI url = UriComponentsBuilder.fromUriString(productServiceUrl + "/product?ids={ids}").build(joinIds(productIds));
+        LOG.debug("Will call the getProducts API on URL: {}", url);
+
+        return retry.retry("product", limiter.limit("product", getWebClient().get().uri(url)
+                .retrieve().bodyToFlux(Product.class).log()
+                .onErrorMap(WebClientResponseException.class, ex -> handleException(ex))
+                .timeout(Duration.ofSeconds(productServiceTimeoutSec))));
     }
 
     @Override
-    public Recommendation createRecommendation(Recommendation body) {
+    public Mono<Void> deleteProduct(int productId) {
+        return sendDeleteProductEvent(productId);
+    }
 
-        messageSources.outputRecommendations()
-                .send(MessageBuilder.withPayload(new Event(CREATE, body.getProductId(), body)).build());
+    public Mono<Void> sendDeleteProductEvent(int productId) {
+        return eventPublisher.publish(messageSources.outputProducts(), new Event<Integer, Product>(DELETE, productId, (Product) null));
+    }
 
-        return body;
+    @Override
+    public Mono<Recommendation> createRecommendation(Recommendation body) {
+        return sendCreateRecommendationEvent(body).thenReturn(body);
+    }
+
+    public Mono<Void> sendCreateRecommendationEvent(Recommendation body) {
+        return eventPublisher.publish(messageSources.outputRecommendations(), new Event<Integer, Recommendation>(CREATE, body.getProductId(), body));
+    }
+
+    public Mono<Void> sendCreateRecommendationsEvent(int productId, List<Recommendation> body) {
+        return eventPublisher.publish(messageSources.outputRecommendations(), new Event<Integer, Recommendation>(CREATE_BATCH, productId, body));
     }
 
     public Flux<Recommendation> getRecommendations(int productId) {
+        return getRecommendations(productId, 0, 0);
+    }
 
-        String url = recommendationServiceUrl + "/recommendation?productId=" + productId;
+    @Override
+    public Flux<Recommendation> getRecommendations(int productId, int pageSize, int cursor) {
+
+        String url = recommendationServiceUrl + "/recommendation?productId=" + productId +
+                ((pageSize > 0 || cursor > 0) ? "&pageSize=" + pageSize + "&cursor=" + cursor : "");
 
         LOG.debug("Will call the getRecommendations API on URL: {}", url);
 
+        // Hedge slow calls with a second call, most likely to another instance, and use whichever answers first.
+        // A hedged pair counts as one call to the concurrency limit, calls over the limit are shed.
+        // Server errors are retried as long as the shared retry budget allows.
+        // Return an empty result if something goes wrong to make it possible for the composite service to return partial responses
+        return retry.retry("recommendation", limiter.limit("recommendation", hedger.hedge("recommendation", () -> getWebClient().get()
+                .uri(url)
+                .retrieve()
+                .bodyToFlux(Recommendation.class))))
+                .log()
+                .onErrorResume(error -> empty());
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsForProducts(List<Integer> productIds) {
+
+        String url = recommendationServiceUrl + "/recommendation?productIds=" + joinIds(productIds);
+
+        LOG.debug("Will call the getRecommendationsForProducts API on URL: {}", url);
+
+        // Counts as one call to the concurrency limit of the recommendation service, calls over the limit are shed.
         // Return an empty result if something goes wrong to make it possible for the composite service to return partial responses
-        return getWebClient().get()
+        return limiter.limit("recommendation", getWebClient().get()
                 .uri(url)
                 .retrieve()
-                .bodyToFlux(Recommendation.class)
+                .bodyToFlux(Recommendation.class))
                 .log()
                 .onErrorResume(error -> empty());
     }
 
     @Override
-    public void deleteRecommendations(int productId) {
-        messageSources.outputRecommendations()
-                .send(MessageBuilder.withPayload(new Event(DELETE, productId, null)).build());
+    public Mono<Void> deleteRecommendations(int productId) {
+        return sendDeleteRecommendationsEvent(productId);
+    }
+
+    public Mono<Void> sendDeleteRecommendationsEvent(int productId) {
+        return eventPublisher.publish(messageSources.outputRecommendations(), new Event<Integer, Recommendation>(DELETE, productId, (Recommendation) null));
     }
 
     @Override
-    public Review createReview(Review body) {
+    public Mono<Review> createReview(Review body) {
+        return sendCreateReviewEvent(body).thenReturn(body);
+    }
 
-        messageSources.outputReviews()
-                .send(MessageBuilder.withPayload(new Event(CREATE, body.getProductId(), body)).build());
-        return body;
+    public Mono<Void> sendCreateReviewEvent(Review body) {
+        return eventPublisher.publish(messageSources.outputReviews(), new Event<Integer, Review>(CREATE, body.getProductId(), body));
+    }
+
+    public Mono<Void> sendCreateReviewsEvent(int productId, List<Review> body) {
+        return eventPublisher.publish(messageSources.outputReviews(), new Event<Integer, Review>(CREATE_BATCH, productId, body));
     }
 
     public Flux<Review> getReviews(int productId) {
+        return getReviews(productId, 0, 0);
+    }
 
-        String url = reviewServiceUrl + "/review?productId=" + productId;
+    @Override
+    public Flux<Review> getReviews(int productId, int pageSize, int cursor) {
+
+        String url = reviewServiceUrl + "/review?productId=" + productId +
+                ((pageSize > 0 || cursor > 0) ? "&pageSize=" + pageSize + "&cursor=" + cursor : "");
 
         LOG.debug("Will call the getReviews API on URL: {}", url);
 
+        // Hedge slow calls with a second call, most likely to another instance, and use whichever answers first.
+        // A hedged pair counts as one call to the concurrency limit, calls over the limit are shed.
+        // Server errors are retried as long as the shared retry budget allows.
         // Return an empty result if something goes wrong to make it possible for the composite service to return partial responses
-        return getWebClient().get()
+        return retry.retry("review", limiter.limit("review", hedger.hedge("review", () -> getWebClient().get()
                 .uri(url)
                 .retrieve()
-                .bodyToFlux(Review.class)
+                .bodyToFlux(Review.class))))
                 .log()
                 .onErrorResume(error -> empty());
     }
 
     @Override
-    public void deleteReviews(int productId) {
-        messageSources.outputReviews()
-                .send(MessageBuilder.withPayload(new Event(DELETE, productId, null)).build());
+    public Flux<Review> getReviewsForProducts(List<Integer> productIds) {
+
+        String url = reviewServiceUrl + "/review?productIds=" + joinIds(productIds);
+
+        LOG.debug("Will call the getReviewsForProducts API on URL: {}", url);
+
+        // Counts as one call to the concurrency limit of the review service, calls over the limit are shed.
+        // Return an empty result if something goes wrong to make it possible for the composite service to return partial responses
+        return limiter.limit("review", getWebClient().get()
+                .uri(url)
+                .retrieve()
+                .bodyToFlux(Review.class))
+                .log()
+                .onErrorResume(error -> empty());
+    }
+
+    @Override
+    public Mono<Void> deleteReviews(int productId) {
+        return sendDeleteReviewsEvent(productId);
+    }
+
+    public Mono<Void> sendDeleteReviewsEvent(int productId) {
+        return eventPublisher.publish(messageSources.outputReviews(), new Event<Integer, Review>(DELETE, productId, (Review) null));
     }
 
     private WebClient getWebClient() {
         if (webClient == null) {
-            webClient = webClientBuilder.build();
+            // Added after the load balancer filter, so the latencies are recorded per instance the requests are sent to.
+            // Added to a copy, the load balanced builder is shared with every other client of it
+            webClient = webClientBuilder.clone()
+                    .filter(RequestDeadline.propagate())
+                    .filter(latencyStats.recorder())
+                    .build();
         }
         return webClient;
     }
 
+    private String joinIds(List<Integer> ids) {
+        return ids.stream().map(String::valueOf).collect(joining(","));
+    }
+
     private Throwable handleException(Throwable ex) {
 
         if (!(ex instanceof WebClientResponseException)) {
@@ -193,6 +303,9 @@ public class ProductCompositeIntegration implements ProductResource, Recommendat
             case UNPROCESSABLE_ENTITY :
                 return new InvalidInputException(getErrorMessage(wcre));
 
+            case GATEWAY_TIMEOUT :
+                return new DeadlineExceededException(getErrorMessage(wcre));
+
             default:
                 LOG.warn("Got a unexpected HTTP error: {}, will rethrow it", wcre.getStatusCode());
                 LOG.warn("Error body: {}", wcre.getResponseBodyAsString());
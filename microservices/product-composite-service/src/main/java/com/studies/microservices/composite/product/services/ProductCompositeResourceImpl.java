@@ -5,133 +5,383 @@ import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import com.studies.api.core.product.Product;
 import com.studies.api.core.recommendation.Recommendation;
 import com.studies.api.core.review.Review;
+import com.studies.util.exceptions.InvalidInputException;
 import com.studies.util.exceptions.NotFoundException;
+import com.studies.util.exceptions.ServiceOverloadedException;
+import com.studies.util.http.ETags;
 import com.studies.util.http.ServiceUtil;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.stream.Collectors;
 
+import static java.util.Collections.emptyList;
+
 @RestController
 public class ProductCompositeResourceImpl implements ProductCompositeResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeResourceImpl.class);
+    private static final String FIELD_RECOMMENDATIONS = "recommendations";
+    private static final String FIELD_REVIEWS = "reviews";
     private final SecurityContext nullSC = new SecurityContextImpl();
     private final ServiceUtil serviceUtil;
     private ProductCompositeIntegration integration;
+    private final ProductAggregateCache aggregateCache;
+    private final ProductFallbackCache fallbackCache;
+    private final ProductAggregateCoalescer coalescer;
+    private final ProductReadModel readModel;
+    private final int maxBatchIds;
 
     @Autowired
-    public ProductCompositeResourceImpl(ServiceUtil serviceUtil, ProductCompositeIntegration integration) {
+    public ProductCompositeResourceImpl(
+            ServiceUtil serviceUtil,
+            ProductCompositeIntegration integration,
+            ProductAggregateCache aggregateCache,
+            ProductFallbackCache fallbackCache,
+            ProductAggregateCoalescer coalescer,
+            ProductReadModel readModel,
+            @Value("${app.batch.maxIds:100}") int maxBatchIds) {
         this.serviceUtil = serviceUtil;
         this.integration = integration;
+        this.aggregateCache = aggregateCache;
+        this.fallbackCache = fallbackCache;
+        this.coalescer = coalescer;
+        this.readModel = readModel;
+        this.maxBatchIds = maxBatchIds;
     }
 
     @Override
     public Mono<Void> createCompositeProduct(ProductAggregate body) {
 
-        return ReactiveSecurityContextHolder.getContext()
-                .doOnSuccess(sc -> internalCreateCompositeProduct(sc, body)).then();
+        return ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC)
+                .flatMap(sc -> internalCreateCompositeProduct(sc, body));
     }
 
-    public void internalCreateCompositeProduct(SecurityContext sc, ProductAggregate body) {
+    private Mono<Void> internalCreateCompositeProduct(SecurityContext sc, ProductAggregate body) {
 
-        try {
+        logAuthorizationInfo(sc);
 
-            logAuthorizationInfo(sc);
+        LOG.debug("createCompositeProduct: creates a new composite entity for productId: {}", body.getProductId());
 
-            LOG.debug("createCompositeProduct: creates a new composite entity for productId: {}", body.getProductId());
+        Product product = new Product(body.getProductId(), body.getName(), body.getWeight(), null);
 
-            Product product = new Product(body.getProductId(), body.getName(), body.getWeight(), null);
-            integration.createProduct(product);
+        List<Recommendation> recommendations = (body.getRecommendations() == null) ? emptyList() :
+                body.getRecommendations().stream()
+                        .map(r -> new Recommendation(body.getProductId(), r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent(), null))
+                        .collect(Collectors.toList());
 
-            if (body.getRecommendations() != null) {
-                body.getRecommendations().forEach(r -> {
-                    Recommendation recommendation = new Recommendation(body.getProductId(), r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent(), null);
-                    integration.createRecommendation(recommendation);
-                });
-            }
+        List<Review> reviews = (body.getReviews() == null) ? emptyList() :
+                body.getReviews().stream()
+                        .map(r -> new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), null))
+                        .collect(Collectors.toList());
+
+        // One event per topic, recommendations and reviews are sent as batches to be created in one bulk write each
+        return Mono.when(
+                        integration.sendCreateProductEvent(product),
+                        recommendations.isEmpty() ? Mono.empty() : integration.sendCreateRecommendationsEvent(body.getProductId(), recommendations),
+                        reviews.isEmpty() ? Mono.empty() : integration.sendCreateReviewsEvent(body.getProductId(), reviews))
+                .doOnSuccess(v -> LOG.debug("createCompositeProduct: composite entities created for productId: {}", body.getProductId()))
+                .doOnError(ex -> LOG.warn("createCompositeProduct failed: {}", ex.toString()));
+    }
+
+    @Override
+    public Mono<ProductAggregate> getCompositeProduct(int productId, int delay, int faultPercent, List<String> fields, int pageSize, int recommendationCursor, int reviewCursor) {
+
+        validateFields(fields);
+        if (pageSize < 0) throw new InvalidInputException("Invalid pageSize: " + pageSize);
+        if (recommendationCursor < 0) throw new InvalidInputException("Invalid recommendationCursor: " + recommendationCursor);
+        if (reviewCursor < 0) throw new InvalidInputException("Invalid reviewCursor: " + reviewCursor);
+
+        ProductAggregateQuery query = new ProductAggregateQuery(
+                fields == null || fields.contains(FIELD_RECOMMENDATIONS),
+                fields == null || fields.contains(FIELD_REVIEWS),
+                pageSize,
+                recommendationCursor,
+                reviewCursor);
+
+        // An aggregate that matches the If-None-Match header of the request is answered with a 304 and never serialized
+        Mono<ProductAggregate> aggregate = Mono.zip(
+                        ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC),
+                        getProductAggregate(productId, delay, faultPercent, query),
+                        (sc, a) -> {
+                            logAuthorizationInfo(sc);
+                            return a;
+                        });
+
+        return ETags.checkNotModified(aggregate, ProductAggregate::getEtag)
+                .doOnError(ex -> LOG.warn("getCompositeProduct failed: {}", ex.toString()))
+                .log();
+    }
+
+    private Mono<ProductAggregate> getProductAggregate(int productId, int delay, int faultPercent, ProductAggregateQuery query) {
+
+        Mono<ProductAggregate> aggregate;
+        if (delay != 0 || faultPercent != 0) {
+            // Requests for a simulated delay or fault are meant to reach the product service, so they bypass the cache
+            aggregate = fetchProductAggregate(productId, getProduct(productId, delay, faultPercent), query);
+
+        } else {
+            // One local lookup instead of calls to the core services, as fresh as the lag of the read model allows.
+            // Reads the read model can't serve, e.g. while it catches up, go to the core services as if there was none.
+            aggregate = Mono.defer(() -> readModel.serve(productId)
+                    .map(view -> Mono.fromCallable(() -> readProductAggregate(view, query)))
+                    .orElseGet(() -> getProductAggregateFromCoreServices(productId, query)));
+        }
+
+        // Aggregates based on a fallback product are never cached
+        return aggregate.onErrorResume(ProductCompositeResourceImpl::isProductUnavailable,
+                ex -> fetchProductAggregate(productId, Mono.fromCallable(() -> getProductFallbackValue(productId)), query));
+    }
+
+    private Mono<ProductAggregate> getProductAggregateFromCoreServices(int productId, ProductAggregateQuery query) {
+
+        if (query.isComplete()) {
+            // Cache misses for the same product that are in flight at the same time share one call to the backends
+            return aggregateCache.get(productId, () -> coalescer.get(productId, () -> fetchProductAggregate(productId, getProduct(productId, 0, 0), query)));
+
+        } else if (!query.isPaged()) {
+            // Partial aggregates are never cached, but they are cut out of a cached complete aggregate if there is one
+            return Mono.defer(() -> aggregateCache.getIfPresent(productId)
+                    .map(cached -> Mono.just(withParts(cached, query)))
+                    .orElseGet(() -> fetchProductAggregate(productId, getProduct(productId, 0, 0), query)));
+
+        } else {
+            // Pages are fetched from the core services, so that only the requested page is transferred
+            return fetchProductAggregate(productId, getProduct(productId, 0, 0), query);
+        }
+    }
+
+    private Mono<Product> getProduct(int productId, int delay, int faultPercent) {
+        return integration.getProduct(productId, delay, faultPercent)
+                .doOnNext(fallbackCache::put);
+    }
+
+    private Mono<ProductAggregate> fetchProductAggregate(int productId, Mono<Product> product, ProductAggregateQuery query) {
+
+        // Parts that are left out are not fetched at all. For pages, one more entity than the page size is asked for
+        // to find out if there is a next page.
+        int corePageSize = query.getPageSize() > 0 ? query.getPageSize() + 1 : 0;
+
+        Mono<List<Recommendation>> recommendations = !query.isIncludeRecommendations() ? Mono.just(emptyList()) :
+                query.isPaged() ?
+                        integration.getRecommendations(productId, corePageSize, query.getRecommendationCursor()).collectList() :
+                        integration.getRecommendations(productId).collectList();
+
+        Mono<List<Review>> reviews = !query.isIncludeReviews() ? Mono.just(emptyList()) :
+                query.isPaged() ?
+                        integration.getReviews(productId, corePageSize, query.getReviewCursor()).collectList() :
+                        integration.getReviews(productId).collectList();
+
+        return Mono.zip(
+                values -> toProductAggregate((Product) values[0], (List<Recommendation>) values[1], (List<Review>) values[2], query, serviceUtil.getServiceAddress()),
+                product,
+                recommendations,
+                reviews);
+    }
+
+    private ProductAggregate readProductAggregate(ProductView view, ProductAggregateQuery query) {
 
-            if (body.getReviews() != null) {
-                body.getReviews().forEach(r -> {
-                    Review review = new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), null);
-                    integration.createReview(review);
-                });
+        // The revision changes with every event applied to the view, so it stands in for the version in the ETag
+        Product product = view.getProduct();
+        product.setVersion(view.getRevision());
+
+        return toProductAggregate(
+                product,
+                page(view.getRecommendations(), query.getRecommendationCursor(), query.getPageSize()),
+                page(view.getReviews(), query.getReviewCursor(), query.getPageSize()),
+                query,
+                serviceUtil.getServiceAddress());
+    }
+
+    private <T> List<T> page(SortedMap<Integer, T> entities, int cursor, int pageSize) {
+
+        // Same as from the core services, one more entity than the page size to find out if there is a next page
+        return entities.tailMap(cursor + 1).values().stream()
+                .limit(pageSize > 0 ? pageSize + 1 : Long.MAX_VALUE)
+                .collect(Collectors.toList());
+    }
+
+    private void validateFields(List<String> fields) {
+        if (fields == null) return;
+
+        fields.forEach(field -> {
+            if (!FIELD_RECOMMENDATIONS.equals(field) && !FIELD_REVIEWS.equals(field)) {
+                throw new InvalidInputException("Invalid field: " + field + ", expected " + FIELD_RECOMMENDATIONS + " or " + FIELD_REVIEWS);
             }
+        });
+    }
+
+    private ProductAggregate withParts(ProductAggregate aggregate, ProductAggregateQuery query) {
+
+        // The entity versions are not kept in the aggregate, so the ETag is derived from the one of the complete aggregate
+        return new ProductAggregate(
+                aggregate.getProductId(),
+                aggregate.getName(),
+                aggregate.getWeight(),
+                query.isIncludeRecommendations() ? aggregate.getRecommendations() : null,
+                query.isIncludeReviews() ? aggregate.getReviews() : null,
+                aggregate.getServiceAddresses(),
+                null,
+                null,
+                ETags.hash(Arrays.asList(aggregate.getEtag(), query.isIncludeRecommendations(), query.isIncludeReviews())));
+    }
 
-            LOG.debug("createCompositeProduct: composite entities created for productId: {}", body.getProductId());
+    private ProductAggregate toProductAggregate(Product product, List<Recommendation> recommendations, List<Review> reviews, ProductAggregateQuery query, String serviceAddress) {
 
-        } catch (RuntimeException re) {
-            LOG.warn("createCompositeProduct failed: {}", re.toString());
-            throw re;
+        int pageSize = query.getPageSize();
+
+        Integer nextRecommendationCursor = null;
+        if (pageSize > 0 && recommendations.size() > pageSize) {
+            recommendations = recommendations.subList(0, pageSize);
+            nextRecommendationCursor = recommendations.get(pageSize - 1).getRecommendationId();
+        }
+
+        Integer nextReviewCursor = null;
+        if (pageSize > 0 && reviews.size() > pageSize) {
+            reviews = reviews.subList(0, pageSize);
+            nextReviewCursor = reviews.get(pageSize - 1).getReviewId();
         }
+
+        return toProductAggregate(
+                product,
+                query.isIncludeRecommendations() ? recommendations : null,
+                query.isIncludeReviews() ? reviews : null,
+                serviceAddress,
+                nextRecommendationCursor,
+                nextReviewCursor);
     }
 
     @Override
-    public Mono<ProductAggregate> getCompositeProduct(int productId, int delay, int faultPercent) {
+    public Flux<ProductAggregatePart> streamCompositeProduct(int productId) {
+
+        String serviceAddress = serviceUtil.getServiceAddress();
+
+        Mono<ProductAggregatePart> product = ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC)
+                .doOnNext(this::logAuthorizationInfo)
+                .then(getProduct(productId, 0, 0))
+                .onErrorResume(ProductCompositeResourceImpl::isProductUnavailable, ex -> Mono.fromCallable(() -> getProductFallbackValue(productId)))
+                .map(p -> new ProductAggregatePart(p.getProductId(), p.getName(), p.getWeight(), serviceAddress));
+
+        Flux<ProductAggregatePart> recommendations = integration.getRecommendations(productId)
+                .map(r -> new ProductAggregatePart(productId, new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()), r.getServiceAddress()));
+
+        Flux<ProductAggregatePart> reviews = integration.getReviews(productId)
+                .map(r -> new ProductAggregatePart(productId, new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()), r.getServiceAddress()));
+
+        // All backends are called right away, recommendations and reviews that arrive before the product are held
+        // back until the product part has been sent, the rest is passed on as it arrives
+        return Flux.mergeSequential(product, Flux.merge(recommendations, reviews))
+                .doOnError(ex -> LOG.warn("streamCompositeProduct failed: {}", ex.toString()));
+    }
+
+    @Override
+    public Flux<ProductAggregate> getCompositeProducts(List<Integer> productIds) {
+
+        List<Integer> distinctProductIds = productIds.stream().distinct().collect(Collectors.toList());
+        if (distinctProductIds.isEmpty()) return Flux.empty();
+        if (distinctProductIds.size() > maxBatchIds) {
+            throw new InvalidInputException("Too many productIds: " + distinctProductIds.size() + ", at most " + maxBatchIds + " are allowed");
+        }
+
+        LOG.debug("getCompositeProducts: fetches composite entities for {} productIds", distinctProductIds.size());
 
         return Mono.zip(
-                        values -> createProductAggregate((SecurityContext) values[0], (Product) values[1], (List<Recommendation>) values[2], (List<Review>) values[3], serviceUtil.getServiceAddress()),
+                        values -> createProductAggregates((SecurityContext) values[0], distinctProductIds, (Map<Integer, Product>) values[1], (Map<Integer, Collection<Recommendation>>) values[2], (Map<Integer, Collection<Review>>) values[3], serviceUtil.getServiceAddress()),
                         ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC),
-                        integration.getProduct(productId, delay, faultPercent)
-                                .onErrorReturn(CallNotPermittedException.class, getProductFallbackValue(productId)),
-                        integration.getRecommendations(productId).collectList(),
-                        integration.getReviews(productId).collectList())
-                .doOnError(ex -> LOG.warn("getCompositeProduct failed: {}", ex.toString()))
+                        integration.getProducts(distinctProductIds).doOnNext(fallbackCache::put).collectMap(Product::getProductId),
+                        integration.getRecommendationsForProducts(distinctProductIds).collectMultimap(Recommendation::getProductId),
+                        integration.getReviewsForProducts(distinctProductIds).collectMultimap(Review::getProductId))
+                .flatMapMany(Flux::fromIterable)
+                .doOnError(ex -> LOG.warn("getCompositeProducts failed: {}", ex.toString()))
                 .log();
     }
 
     @Override
     public Mono<Void> deleteCompositeProduct(int productId) {
 
-        return ReactiveSecurityContextHolder.getContext()
-                .doOnSuccess(sc -> internalDeleteCompositeProduct(sc, productId)).then();
+        return ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC)
+                .flatMap(sc -> internalDeleteCompositeProduct(sc, productId));
     }
 
-    private void internalDeleteCompositeProduct(SecurityContext sc, int productId) {
-        try {
-            logAuthorizationInfo(sc);
+    private Mono<Void> internalDeleteCompositeProduct(SecurityContext sc, int productId) {
 
-            LOG.debug("deleteCompositeProduct: Deletes a product aggregate for productId: {}", productId);
+        logAuthorizationInfo(sc);
 
-            integration.deleteProduct(productId);
-            integration.deleteRecommendations(productId);
-            integration.deleteReviews(productId);
+        LOG.debug("deleteCompositeProduct: Deletes a product aggregate for productId: {}", productId);
 
-            LOG.debug("deleteCompositeProduct: aggregate entities deleted for productId: {}", productId);
+        // Evicted before the events are sent, a deleted product must not be served as the fallback afterwards
+        fallbackCache.evict(productId);
 
-        } catch (RuntimeException re) {
-            LOG.warn("deleteCompositeProduct failed: {}", re.toString());
-            throw re;
-        }
+        return Mono.when(
+                        integration.sendDeleteProductEvent(productId),
+                        integration.sendDeleteRecommendationsEvent(productId),
+                        integration.sendDeleteReviewsEvent(productId))
+                .doOnSuccess(v -> LOG.debug("deleteCompositeProduct: aggregate entities deleted for productId: {}", productId))
+                .doOnError(ex -> LOG.warn("deleteCompositeProduct failed: {}", ex.toString()));
+    }
+
+    /**
+     * The product service is not called if its circuit breaker is open or its concurrency limit is reached,
+     * in both cases the product is looked up in the fallback cache instead.
+     */
+    private static boolean isProductUnavailable(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof ServiceOverloadedException;
     }
 
     private Product getProductFallbackValue(int productId) {
 
-        LOG.warn("Creating a fallback product for productId = {}", productId);
+        LOG.warn("Looks up a fallback product for productId = {}", productId);
 
-        if (productId == 13) {
+        return fallbackCache.get(productId).orElseThrow(() -> {
             String errMsg = "Product Id: " + productId + " not found in fallback cache!";
             LOG.warn(errMsg);
-            throw new NotFoundException(errMsg);
-        }
-
-        return new Product(productId, "Fallback product" + productId, productId, serviceUtil.getServiceAddress());
+            return new NotFoundException(errMsg);
+        });
     }
 
-    private ProductAggregate createProductAggregate(SecurityContext sc, Product product, List<Recommendation> recommendations, List<Review> reviews, String serviceAddress) {
+    private List<ProductAggregate> createProductAggregates(SecurityContext sc, List<Integer> productIds, Map<Integer, Product> products, Map<Integer, Collection<Recommendation>> recommendations, Map<Integer, Collection<Review>> reviews, String serviceAddress) {
 
         logAuthorizationInfo(sc);
 
+        // Products that were not found are left out, missing recommendations and reviews give partial aggregates
+        List<ProductAggregate> aggregates = new ArrayList<>(products.size());
+        productIds.forEach(productId -> {
+            Product product = products.get(productId);
+            if (product == null) {
+                LOG.debug("createProductAggregates: no product found for productId: {}, skips it", productId);
+                return;
+            }
+            aggregates.add(toProductAggregate(
+                    product,
+                    new ArrayList<>(recommendations.getOrDefault(productId, emptyList())),
+                    new ArrayList<>(reviews.getOrDefault(productId, emptyList())),
+                    serviceAddress,
+                    null,
+                    null));
+        });
+
+        return aggregates;
+    }
+
+    private ProductAggregate toProductAggregate(Product product, List<Recommendation> recommendations, List<Review> reviews, String serviceAddress, Integer nextRecommendationCursor, Integer nextReviewCursor) {
+
         // 1. Setup product info
         int productId = product.getProductId();
         String name = product.getName();
@@ -155,7 +405,15 @@ public class ProductCompositeResourceImpl implements ProductCompositeResource {
         String recommendationAddress = (recommendations != null && recommendations.size() > 0) ? recommendations.get(0).getServiceAddress() : "";
         ServiceAddresses serviceAddresses = new ServiceAddresses(serviceAddress, productAddress, reviewAddress, recommendationAddress);
 
-        return new ProductAggregate(productId, name, weight, recommendationSummaries, reviewSummaries, serviceAddresses);
+        // 5. Create the ETag from the versions of the entities, parts that are left out are marked with a "-"
+        String etag = ETags.hash(Arrays.asList(
+                productId + "-" + product.getVersion(),
+                (recommendations == null) ? "-" : ETags.hash(recommendations.stream().map(r -> r.getRecommendationId() + "-" + r.getVersion()).collect(Collectors.toList())),
+                (reviews == null) ? "-" : ETags.hash(reviews.stream().map(r -> r.getReviewId() + "-" + r.getVersion()).collect(Collectors.toList())),
+                nextRecommendationCursor,
+                nextReviewCursor));
+
+        return new ProductAggregate(productId, name, weight, recommendationSummaries, reviewSummaries, serviceAddresses, nextRecommendationCursor, nextReviewCursor, etag);
     }
 
     private void logAuthorizationInfo(SecurityContext sc) {
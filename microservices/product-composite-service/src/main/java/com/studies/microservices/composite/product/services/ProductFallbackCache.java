@@ -0,0 +1,57 @@
+package com.studies.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.studies.api.core.product.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Last known good product information, filled from successful responses of the product service.
+ * <p>
+ * Used as the fallback when the product circuit breaker rejects calls, so that an outage of the product service
+ * serves stale but correct product information. Entries are evicted least recently used first, and expire after
+ * the configured time to live. The entry of a deleted product is evicted, so that it isn't served after the delete.
+ */
+@Component
+public class ProductFallbackCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductFallbackCache.class);
+
+    private final Cache<Integer, Product> cache;
+
+    @Autowired
+    public ProductFallbackCache(
+            MeterRegistry registry,
+            @Value("${app.product-fallback-cache.maxSize:10000}") long maxSize,
+            @Value("${app.product-fallback-cache.timeToLiveSec:86400}") int timeToLiveSec
+    ) {
+        LOG.info("Creates a product fallback cache, maxSize: {}, timeToLiveSec: {}", maxSize, timeToLiveSec);
+
+        this.cache = CaffeineCacheMetrics.monitor(registry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(timeToLiveSec))
+                .recordStats()
+                .<Integer, Product>build(), "product-fallback");
+    }
+
+    public void put(Product product) {
+        cache.put(product.getProductId(), product);
+    }
+
+    public Optional<Product> get(int productId) {
+        return Optional.ofNullable(cache.getIfPresent(productId));
+    }
+
+    public void evict(int productId) {
+        cache.invalidate(productId);
+    }
+}
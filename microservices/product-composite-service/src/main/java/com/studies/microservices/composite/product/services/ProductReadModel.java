@@ -0,0 +1,291 @@
+package com.studies.microservices.composite.product.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studies.api.core.product.Product;
+import com.studies.api.core.recommendation.Recommendation;
+import com.studies.api.core.review.Review;
+import com.studies.api.event.Event;
+import com.studies.util.exceptions.EventProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Materialized view of the products, recommendations and reviews, kept up to date from the same events the core
+ * services consume, see {@link ProductReadModelUpdater}.
+ * <p>
+ * The views are persisted per productId in an embedded MVStore file in the configured data directory, so they survive
+ * restarts without any outside service. Without a data directory the store is kept in memory only.
+ * <p>
+ * The lag of the view is the time from an event being created to it being applied here. The view is only served
+ * while the lag of the last applied event is within {@code maxLagMs}, so reads fall back to the core services while
+ * the view catches up, e.g. after a restart or during a rebuild. Persisted views are not served after a restart until
+ * an event shows that the consumer has caught up, the events published while the instance was down may still be
+ * waiting to be applied.
+ * <p>
+ * Only products the view has seen are served from it, reads of others, e.g. products created before the read model
+ * was enabled, fall back to the core services too.
+ */
+@Component
+public class ProductReadModel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductReadModel.class);
+
+    private static final long LAG_UNKNOWN = -1;
+
+    private final ObjectMapper mapper;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final long maxLagMs;
+
+    private final MVStore store;
+    private final MVMap<Integer, String> views;
+    private final AtomicLong lastLagMs = new AtomicLong(LAG_UNKNOWN);
+    private final Counter viewReads;
+    private final Counter staleReads;
+    private final Counter missedReads;
+
+    @Autowired
+    public ProductReadModel(
+            ObjectMapper mapper,
+            MeterRegistry registry,
+            @Value("${app.read-model.enabled:false}") boolean enabled,
+            @Value("${app.read-model.dataDir:}") String dataDir,
+            @Value("${app.read-model.maxLagMs:5000}") long maxLagMs,
+            @Value("${app.read-model.rebuildOnStartup:false}") boolean rebuildOnStartup
+    ) {
+        LOG.info("Creates a product read model, enabled: {}, dataDir: {}, maxLagMs: {}, rebuildOnStartup: {}", enabled, dataDir, maxLagMs, rebuildOnStartup);
+
+        this.mapper = mapper;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.maxLagMs = maxLagMs;
+        this.viewReads = registry.counter("product-composite.read-model.reads", "result", "view");
+        this.staleReads = registry.counter("product-composite.read-model.reads", "result", "stale");
+        this.missedReads = registry.counter("product-composite.read-model.reads", "result", "miss");
+
+        if (!enabled) {
+            this.store = null;
+            this.views = null;
+            return;
+        }
+
+        MVStore.Builder builder = new MVStore.Builder().compress();
+        this.store = dataDir.isEmpty() ? builder.open() : builder.fileName(storeFile(dataDir)).open();
+        this.views = store.openMap("product-views");
+
+        if (rebuildOnStartup) rebuild();
+
+        registry.gauge("product-composite.read-model.products", views, MVMap::size);
+        registry.gauge("product-composite.read-model.last-lag", lastLagMs, AtomicLong::get);
+    }
+
+    /**
+     * Returns the view of the product if the read can be served from it, i.e. if the read model is enabled, not
+     * lagging behind too much and has seen the product. Otherwise the read is left to the core services.
+     */
+    public Optional<ProductView> serve(int productId) {
+
+        if (!enabled) return Optional.empty();
+
+        if (!isCaughtUp()) {
+            staleReads.increment();
+            return Optional.empty();
+        }
+
+        Optional<ProductView> view = find(productId).filter(v -> v.getProduct() != null);
+        (view.isPresent() ? viewReads : missedReads).increment();
+        return view;
+    }
+
+    /**
+     * Returns true if the last applied event was created no more than {@code maxLagMs} ago.
+     */
+    public boolean isCaughtUp() {
+        long lag = lastLagMs.get();
+        return lag != LAG_UNKNOWN && lag <= maxLagMs;
+    }
+
+    public Optional<ProductView> find(int productId) {
+        return Optional.ofNullable(views.get(productId)).map(this::read);
+    }
+
+    /**
+     * Drops all views, they are rebuilt from the events that are consumed after this.
+     * The consumer must start over from the earliest retained event for the rebuilt views to be complete.
+     */
+    public synchronized void rebuild() {
+        LOG.info("Drops {} product views to rebuild them from the events", views.size());
+        views.clear();
+        store.commit();
+        lastLagMs.set(LAG_UNKNOWN);
+    }
+
+    // The event handlers are synchronized since they read, change and write back the view of a product,
+    // and events from the three topics are consumed on different threads
+
+    public synchronized void onProductEvent(Event<Integer, Product> event) {
+
+        switch (event.getEventType()) {
+
+        case CREATE:
+            createProduct(event.getData());
+            break;
+
+        case CREATE_BATCH:
+            event.getBatch().forEach(this::createProduct);
+            break;
+
+        case DELETE:
+            update(event.getKey(), view -> view.setProduct(null));
+            break;
+
+        default:
+            throw incorrectEventType(event);
+        }
+
+        applied("products", event);
+    }
+
+    public synchronized void onRecommendationEvent(Event<Integer, Recommendation> event) {
+
+        switch (event.getEventType()) {
+
+        case CREATE:
+            createRecommendation(event.getData());
+            break;
+
+        case CREATE_BATCH:
+            event.getBatch().forEach(this::createRecommendation);
+            break;
+
+        case DELETE:
+            update(event.getKey(), view -> view.getRecommendations().clear());
+            break;
+
+        default:
+            throw incorrectEventType(event);
+        }
+
+        applied("recommendations", event);
+    }
+
+    public synchronized void onReviewEvent(Event<Integer, Review> event) {
+
+        switch (event.getEventType()) {
+
+        case CREATE:
+            createReview(event.getData());
+            break;
+
+        case CREATE_BATCH:
+            event.getBatch().forEach(this::createReview);
+            break;
+
+        case DELETE:
+            update(event.getKey(), view -> view.getReviews().clear());
+            break;
+
+        default:
+            throw incorrectEventType(event);
+        }
+
+        applied("reviews", event);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store != null) store.close();
+    }
+
+    // Creates follow the core services, where an entity that already exists is left as it is
+
+    private void createProduct(Product product) {
+        update(product.getProductId(), view -> {
+            if (view.getProduct() == null) view.setProduct(product);
+        });
+    }
+
+    private void createRecommendation(Recommendation recommendation) {
+        update(recommendation.getProductId(), view -> view.getRecommendations().putIfAbsent(recommendation.getRecommendationId(), recommendation));
+    }
+
+    private void createReview(Review review) {
+        update(review.getProductId(), view -> view.getReviews().putIfAbsent(review.getReviewId(), review));
+    }
+
+    private void update(int productId, Consumer<ProductView> change) {
+
+        ProductView view = find(productId).orElseGet(ProductView::new);
+        change.accept(view);
+        view.setRevision(view.getRevision() + 1);
+
+        if (view.isEmpty()) {
+            views.remove(productId);
+        } else {
+            views.put(productId, write(view));
+        }
+    }
+
+    private void applied(String topic, Event<?, ?> event) {
+
+        // Committed per event, so that the views on disk never are ahead of or behind the consumed events by more than one
+        store.commit();
+
+        LocalDateTime createdAt = event.getEventCreatedAt();
+        if (createdAt == null) return;
+
+        Duration lag = Duration.between(createdAt, LocalDateTime.now());
+        lastLagMs.set(Math.max(0, lag.toMillis()));
+        registry.timer("product-composite.read-model.lag", "topic", topic).record(lag);
+
+        LOG.debug("Applied a {} {} event for key: {}, lag: {} ms", topic, event.getEventType(), event.getKey(), lag.toMillis());
+    }
+
+    private static String storeFile(String dataDir) {
+        try {
+            return Files.createDirectories(Paths.get(dataDir)).resolve("product-views.mv.db").toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private EventProcessingException incorrectEventType(Event<?, ?> event) {
+        String errorMessage = "Incorrect event type: " + event.getEventType() + ", expected a CREATE, CREATE_BATCH or DELETE event";
+        LOG.warn(errorMessage);
+        return new EventProcessingException(errorMessage);
+    }
+
+    private ProductView read(String json) {
+        try {
+            return mapper.readValue(json, ProductView.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String write(ProductView view) {
+        try {
+            return mapper.writeValueAsString(view);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.studies.microservices.composite.product.services;
+
+import com.studies.api.core.product.Product;
+import com.studies.api.core.recommendation.Recommendation;
+import com.studies.api.core.review.Review;
+import com.studies.api.event.Event;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.messaging.SubscribableChannel;
+
+/**
+ * Consumes the same destinations as the core services and applies the events to the {@link ProductReadModel}.
+ * <p>
+ * Only bound if the read model is enabled, since its consumer groups are durable and would otherwise pile up events.
+ */
+@EnableBinding(ProductReadModelUpdater.MessageSinks.class)
+@ConditionalOnProperty(name = "app.read-model.enabled", havingValue = "true")
+public class ProductReadModelUpdater {
+
+    private final ProductReadModel readModel;
+
+    public interface MessageSinks {
+
+        String INPUT_PRODUCTS = "input-products-read-model";
+        String INPUT_RECOMMENDATIONS = "input-recommendations-read-model";
+        String INPUT_REVIEWS = "input-reviews-read-model";
+
+        @Input(INPUT_PRODUCTS)
+        SubscribableChannel inputProducts();
+
+        @Input(INPUT_RECOMMENDATIONS)
+        SubscribableChannel inputRecommendations();
+
+        @Input(INPUT_REVIEWS)
+        SubscribableChannel inputReviews();
+    }
+
+    @Autowired
+    public ProductReadModelUpdater(ProductReadModel readModel) {
+        this.readModel = readModel;
+    }
+
+    @StreamListener(target = MessageSinks.INPUT_PRODUCTS)
+    public void onProductEvent(Event<Integer, Product> event) {
+        readModel.onProductEvent(event);
+    }
+
+    @StreamListener(target = MessageSinks.INPUT_RECOMMENDATIONS)
+    public void onRecommendationEvent(Event<Integer, Recommendation> event) {
+        readModel.onRecommendationEvent(event);
+    }
+
+    @StreamListener(target = MessageSinks.INPUT_REVIEWS)
+    public void onReviewEvent(Event<Integer, Review> event) {
+        readModel.onReviewEvent(event);
+    }
+}
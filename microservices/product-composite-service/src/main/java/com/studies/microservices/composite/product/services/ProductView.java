@@ -0,0 +1,67 @@
+package com.studies.microservices.composite.product.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.studies.api.core.product.Product;
+import com.studies.api.core.recommendation.Recommendation;
+import com.studies.api.core.review.Review;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The state of one product in the {@link ProductReadModel}, as assembled from the events seen for it.
+ * <p>
+ * Stored as JSON, recommendations and reviews are kept ordered by their ids so that pages can be cut out of them the
+ * same way the core services do. The revision is bumped for every event applied to the view.
+ */
+public class ProductView {
+
+    private Product product;
+    private SortedMap<Integer, Recommendation> recommendations;
+    private SortedMap<Integer, Review> reviews;
+    private int revision;
+
+    public ProductView() {
+        product = null;
+        recommendations = new TreeMap<>();
+        reviews = new TreeMap<>();
+        revision = 0;
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return product == null && recommendations.isEmpty() && reviews.isEmpty();
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public SortedMap<Integer, Recommendation> getRecommendations() {
+        return recommendations;
+    }
+
+    public SortedMap<Integer, Review> getReviews() {
+        return reviews;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+
+    public void setRecommendations(SortedMap<Integer, Recommendation> recommendations) {
+        this.recommendations = recommendations;
+    }
+
+    public void setReviews(SortedMap<Integer, Review> reviews) {
+        this.reviews = reviews;
+    }
+
+    public void setRevision(int revision) {
+        this.revision = revision;
+    }
+}
@@ -0,0 +1,35 @@
+package com.studies.microservices.composite.product.services;
+
+/**
+ * Token bucket that caps extra requests, e.g. hedged requests, to a fraction of the base requests.
+ * <p>
+ * Every base request deposits {@code ratio} tokens, up to {@code maxTokens}, and every extra request has to withdraw
+ * one token. With a ratio of 0.1, at most one extra request is sent per ten base requests, plus the initial burst.
+ */
+public class RequestBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RequestBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void onRequest() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (tokens < 1) return false;
+
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
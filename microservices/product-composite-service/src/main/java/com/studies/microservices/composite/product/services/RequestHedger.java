@@ -0,0 +1,134 @@
+package com.studies.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for backend calls.
+ * <p>
+ * If a call has not answered within the configured latency percentile of the backend, a second identical call is
+ * sent and whichever answers first is used, the other one is cancelled. Since the calls go through the load balanced
+ * WebClient, the second call is normally routed to another instance of the backend.
+ * <p>
+ * Hedged calls are capped per backend by a {@link RequestBudget}, so hedging can't add more than the configured
+ * percentage of extra load to a backend that is slow across the board.
+ */
+@Component
+public class RequestHedger {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestHedger.class);
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final double budgetRatio;
+    private final int maxBurst;
+
+    private final Map<String, Backend> backends = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RequestHedger(
+            MeterRegistry registry,
+            @Value("${app.hedging.enabled:true}") boolean enabled,
+            @Value("${app.hedging.percentile:0.95}") double percentile,
+            @Value("${app.hedging.minDelayMs:50}") int minDelayMs,
+            @Value("${app.hedging.budgetPercent:10}") int budgetPercent,
+            @Value("${app.hedging.maxBurst:10}") int maxBurst
+    ) {
+        LOG.info("Creates a request hedger, enabled: {}, percentile: {}, minDelayMs: {}, budgetPercent: {}", enabled, percentile, minDelayMs, budgetPercent);
+
+        this.registry = registry;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = Duration.ofMillis(minDelayMs);
+        this.budgetRatio = budgetPercent / 100.0;
+        this.maxBurst = maxBurst;
+    }
+
+    public <T> Flux<T> hedge(String backendName, Supplier<Flux<T>> call) {
+
+        if (!enabled) return Flux.defer(call);
+
+        Backend backend = backends.computeIfAbsent(backendName, Backend::new);
+
+        return Flux.defer(() -> {
+            backend.budget.onRequest();
+            Duration delay = backend.hedgeDelay();
+
+            Flux<T> primary = backend.timed(call.get());
+            Flux<T> hedged = Mono.delay(delay).flatMapMany(tick -> {
+                if (!backend.budget.tryAcquire()) {
+                    LOG.debug("No budget left to hedge a {} call after {} ms", backendName, delay.toMillis());
+                    backend.budgetExhausted.increment();
+                    return Flux.never();
+                }
+
+                LOG.debug("Hedges a {} call that has not answered within {} ms", backendName, delay.toMillis());
+                backend.hedged.increment();
+                return backend.timed(call.get());
+            });
+
+            return Flux.first(primary, hedged);
+        });
+    }
+
+    private class Backend {
+
+        private final Timer latency;
+        private final Counter hedged;
+        private final Counter budgetExhausted;
+        private final RequestBudget budget;
+
+        Backend(String name) {
+            this.latency = Timer.builder("product-composite.hedging.latency")
+                    .description("Time to the first signal of calls to the backend")
+                    .tag("backend", name)
+                    .publishPercentiles(percentile)
+                    .register(registry);
+            this.hedged = registry.counter("product-composite.hedging.hedged", "backend", name);
+            this.budgetExhausted = registry.counter("product-composite.hedging.budget-exhausted", "backend", name);
+            this.budget = new RequestBudget(budgetRatio, maxBurst);
+            registry.gauge("product-composite.hedging.budget", Tags.of("backend", name), budget, RequestBudget::getTokens);
+        }
+
+        Duration hedgeDelay() {
+            for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+                if (value.percentile() == percentile) {
+                    Duration observed = Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+                    return observed.compareTo(minDelay) > 0 ? observed : minDelay;
+                }
+            }
+            return minDelay;
+        }
+
+        <T> Flux<T> timed(Flux<T> flux) {
+            return Flux.defer(() -> {
+                long start = System.nanoTime();
+                AtomicBoolean recorded = new AtomicBoolean();
+                return flux.doOnEach(signal -> {
+                    if (!signal.isOnSubscribe() && recorded.compareAndSet(false, true)) {
+                        latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                });
+            });
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.studies.microservices.composite.product;
+
+import com.studies.api.core.product.Product;
+import com.studies.api.event.Event;
+import com.studies.microservices.composite.product.services.ProductAggregateCache;
+import com.studies.microservices.composite.product.services.ProductAggregateCacheInvalidator;
+import com.studies.microservices.composite.product.services.ProductCompositeIntegration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static com.studies.api.event.Event.Type.DELETE;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = RANDOM_PORT,
+        classes = {ProductCompositeServiceApplication.class, TestSecurityConfig.class},
+        properties = {"spring.main.allow-bean-definition-overriding=true"})
+public class AggregateCacheTests {
+
+    private static final int PRODUCT_ID_CACHED = 11;
+    private static final int PRODUCT_ID_INVALIDATED = 12;
+    private static final int PRODUCT_ID_DELAYED = 13;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ProductAggregateCache aggregateCache;
+
+    @Autowired
+    private ProductAggregateCacheInvalidator.MessageSinks channels;
+
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    @Before
+    public void setUp() {
+
+        aggregateCache.invalidateAll();
+
+        when(compositeIntegration.getProduct(anyInt(), anyInt(), anyInt())).
+                thenAnswer(invocation -> Mono.just(new Product(invocation.getArgument(0), "name", 1, "mock-address")));
+
+        when(compositeIntegration.getRecommendations(anyInt())).thenReturn(Flux.empty());
+
+        when(compositeIntegration.getReviews(anyInt())).thenReturn(Flux.empty());
+    }
+
+    @Test
+    public void getCachedAggregate() {
+
+        getAndVerifyProduct(PRODUCT_ID_CACHED, "");
+        getAndVerifyProduct(PRODUCT_ID_CACHED, "");
+
+        verify(compositeIntegration, times(1)).getProduct(eq(PRODUCT_ID_CACHED), anyInt(), anyInt());
+    }
+
+    @Test
+    public void invalidateCachedAggregateOnEvent() {
+
+        getAndVerifyProduct(PRODUCT_ID_INVALIDATED, "");
+
+        channels.inputReviews().send(new GenericMessage<>(new Event(DELETE, PRODUCT_ID_INVALIDATED, null)));
+
+        getAndVerifyProduct(PRODUCT_ID_INVALIDATED, "");
+
+        verify(compositeIntegration, times(2)).getProduct(eq(PRODUCT_ID_INVALIDATED), anyInt(), anyInt());
+    }
+
+    @Test
+    public void bypassCacheForSimulatedDelay() {
+
+        getAndVerifyProduct(PRODUCT_ID_DELAYED, "?delay=1");
+        getAndVerifyProduct(PRODUCT_ID_DELAYED, "?delay=1");
+
+        verify(compositeIntegration, times(2)).getProduct(eq(PRODUCT_ID_DELAYED), anyInt(), anyInt());
+    }
+
+    private void getAndVerifyProduct(int productId, String query) {
+        client.get()
+                .uri("/product-composite/" + productId + query)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.productId").isEqualTo(productId);
+    }
+}
@@ -0,0 +1,95 @@
+package com.studies.microservices.composite.product;
+
+import com.studies.api.composite.product.ProductAggregate;
+import com.studies.microservices.composite.product.services.ProductAggregateCoalescer;
+import com.studies.util.exceptions.DeadlineExceededException;
+import com.studies.util.http.RequestDeadline;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingTests {
+
+    private SimpleMeterRegistry registry;
+    private ProductAggregateCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        coalescer = new ProductAggregateCoalescer(registry, true);
+    }
+
+    @Test
+    public void concurrentReadsShareOneCall() {
+
+        AtomicInteger calls = new AtomicInteger();
+        MonoProcessor<ProductAggregate> backend = MonoProcessor.create();
+
+        AtomicReference<ProductAggregate> first = new AtomicReference<>();
+        AtomicReference<ProductAggregate> second = new AtomicReference<>();
+
+        coalescer.get(1, () -> { calls.incrementAndGet(); return backend; }).subscribe(first::set);
+        coalescer.get(1, () -> { calls.incrementAndGet(); return backend; }).subscribe(second::set);
+
+        ProductAggregate aggregate = new ProductAggregate(1, "name", 1, null, null, null);
+        backend.onNext(aggregate);
+
+        assertSame(aggregate, first.get());
+        assertSame(aggregate, second.get());
+        assertEquals(1, calls.get());
+
+        DistributionSummary summary = registry.get("product-composite.coalescing.subscribers").summary();
+        assertEquals(1, summary.count());
+        assertEquals(2.0, summary.totalAmount(), 0.0);
+    }
+
+    @Test
+    public void sharedCallRunsWithoutTheDeadlineOfTheFirstRead() throws InterruptedException {
+
+        AtomicReference<Boolean> loaderSawDeadline = new AtomicReference<>();
+        MonoProcessor<ProductAggregate> backend = MonoProcessor.create();
+        Supplier<Mono<ProductAggregate>> loader = () -> Mono.subscriberContext()
+                .doOnNext(context -> loaderSawDeadline.set(context.hasKey(RequestDeadline.class)))
+                .then(backend);
+
+        AtomicReference<Throwable> first = new AtomicReference<>();
+        AtomicReference<ProductAggregate> second = new AtomicReference<>();
+
+        coalescer.get(1, loader)
+                .subscriberContext(context -> context.put(RequestDeadline.class, RequestDeadline.inMillis(50)))
+                .subscribe(a -> {}, first::set);
+        coalescer.get(1, loader).subscribe(second::set);
+
+        // The first read gives up on its own deadline, the shared call goes on for the second one
+        Thread.sleep(200);
+        ProductAggregate aggregate = new ProductAggregate(1, "name", 1, null, null, null);
+        backend.onNext(aggregate);
+
+        assertFalse(loaderSawDeadline.get());
+        assertTrue(first.get() instanceof DeadlineExceededException);
+        assertSame(aggregate, second.get());
+    }
+
+    @Test
+    public void sequentialReadsAreNotShared() {
+
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.get(1, () -> { calls.incrementAndGet(); return Mono.just(new ProductAggregate()); }).block();
+        coalescer.get(1, () -> { calls.incrementAndGet(); return Mono.just(new ProductAggregate()); }).block();
+
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,82 @@
+package com.studies.microservices.composite.product;
+
+import com.studies.microservices.composite.product.services.ConcurrencyLimiter;
+import com.studies.util.exceptions.NotFoundException;
+import com.studies.util.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrencyLimitTests {
+
+    private SimpleMeterRegistry registry;
+    private ConcurrencyLimiter limiter;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        limiter = new ConcurrencyLimiter(registry, true, 2, 1, 10, 0.5, 1000);
+    }
+
+    @Test
+    public void shedsCallsOverTheLimit() {
+
+        Disposable first = limiter.limit("product", Mono.never()).subscribe();
+        Disposable second = limiter.limit("product", Mono.never()).subscribe();
+
+        StepVerifier.create(limiter.limit("product", Mono.just(1)))
+                .expectError(ServiceOverloadedException.class)
+                .verify();
+
+        assertEquals(2.0, inFlight("product"), 0.0);
+        assertEquals(1.0, registry.get("product-composite.concurrency-limit.rejections").tag("backend", "product").counter().count(), 0.0);
+
+        first.dispose();
+        second.dispose();
+
+        assertEquals(0.0, inFlight("product"), 0.0);
+        StepVerifier.create(limiter.limit("product", Mono.just(1)))
+                .expectNext(1)
+                .verifyComplete();
+    }
+
+    @Test
+    public void lowersTheLimitOnFailuresButNotOnClientErrors() {
+
+        StepVerifier.create(limiter.limit("review", Mono.error(new NotFoundException())))
+                .expectError(NotFoundException.class)
+                .verify();
+        assertEquals(3.0, limit("review"), 0.0);
+
+        StepVerifier.create(limiter.limit("review", Mono.error(new RuntimeException())))
+                .expectError(RuntimeException.class)
+                .verify();
+        assertEquals(1.0, limit("review"), 0.0);
+    }
+
+    @Test
+    public void raisesTheLimitWhenInUse() {
+
+        Disposable pending = limiter.limit("recommendation", Mono.never()).subscribe();
+
+        StepVerifier.create(limiter.limit("recommendation", Mono.just(1)))
+                .expectNext(1)
+                .verifyComplete();
+        assertEquals(3.0, limit("recommendation"), 0.0);
+
+        pending.dispose();
+    }
+
+    private double limit(String backend) {
+        return registry.get("product-composite.concurrency-limit.limit").tag("backend", backend).gauge().value();
+    }
+
+    private double inFlight(String backend) {
+        return registry.get("product-composite.concurrency-limit.in-flight").tag("backend", backend).gauge().value();
+    }
+}
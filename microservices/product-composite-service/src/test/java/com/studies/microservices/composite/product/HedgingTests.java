@@ -0,0 +1,81 @@
+package com.studies.microservices.composite.product;
+
+import com.studies.microservices.composite.product.services.RequestBudget;
+import com.studies.microservices.composite.product.services.RequestHedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgingTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void slowCallIsHedged() {
+
+        RequestHedger hedger = new RequestHedger(registry, true, 0.95, 10, 10, 10);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(hedger.hedge("review", () -> calls.incrementAndGet() == 1 ? slow("primary") : Flux.just("hedged")))
+                .expectNext("hedged")
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("product-composite.hedging.hedged").counter().count(), 0.0);
+    }
+
+    @Test
+    public void fastCallIsNotHedged() {
+
+        RequestHedger hedger = new RequestHedger(registry, true, 0.95, 1000, 10, 10);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(hedger.hedge("review", () -> { calls.incrementAndGet(); return Flux.just("primary"); }))
+                .expectNext("primary")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void noHedgeWithoutBudget() {
+
+        RequestHedger hedger = new RequestHedger(registry, true, 0.95, 10, 0, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(hedger.hedge("review", () -> calls.incrementAndGet() == 1 ? slow("primary") : Flux.just("hedged")))
+                .expectNext("primary")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("product-composite.hedging.budget-exhausted").counter().count(), 0.0);
+    }
+
+    @Test
+    public void budgetIsRefilledByBaseRequests() {
+
+        RequestBudget budget = new RequestBudget(0.5, 1);
+
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+
+        budget.onRequest();
+        assertFalse(budget.tryAcquire());
+
+        budget.onRequest();
+        assertTrue(budget.tryAcquire());
+    }
+
+    private Flux<String> slow(String value) {
+        return Mono.delay(Duration.ofMillis(500)).thenMany(Flux.just(value));
+    }
+}
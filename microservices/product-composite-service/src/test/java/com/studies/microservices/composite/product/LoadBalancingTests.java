@@ -0,0 +1,118 @@
+package com.studies.microservices.composite.product;
+
+import com.studies.microservices.composite.product.services.InstanceLatencyStats;
+import com.studies.microservices.composite.product.services.PeakEwmaLoadBalancer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.DefaultRequest;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LoadBalancingTests {
+
+    private static final ServiceInstance FAST = new DefaultServiceInstance("fast:80", "product", "fast", 80, false);
+    private static final ServiceInstance SLOW = new DefaultServiceInstance("slow:80", "product", "slow", 80, false);
+
+    private final AtomicReference<List<ServiceInstance>> instances = new AtomicReference<>(asList(FAST, SLOW));
+
+    private SimpleMeterRegistry registry;
+    private InstanceLatencyStats stats;
+    private PeakEwmaLoadBalancer loadBalancer;
+
+    @Before
+    public void setUp() {
+
+        registry = new SimpleMeterRegistry();
+        stats = new InstanceLatencyStats(registry, 10000, 1000);
+
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return "product";
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(instances.get());
+            }
+        };
+
+        ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(supplier);
+
+        loadBalancer = new PeakEwmaLoadBalancer(provider, stats);
+    }
+
+    @Test
+    public void choosesTheFasterInstance() {
+
+        stats.observe("fast", 80, MILLISECONDS.toNanos(10));
+        stats.observe("slow", 80, MILLISECONDS.toNanos(500));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(FAST, choose());
+        }
+    }
+
+    @Test
+    public void avoidsAnInstanceAfterItsFirstSlowResponse() {
+
+        for (int i = 0; i < 10; i++) {
+            stats.observe("fast", 80, MILLISECONDS.toNanos(20));
+            stats.observe("slow", 80, MILLISECONDS.toNanos(10));
+        }
+        assertEquals(SLOW, choose());
+
+        stats.observe("slow", 80, MILLISECONDS.toNanos(1000));
+        assertEquals(FAST, choose());
+    }
+
+    @Test
+    public void decaysTheLatencyOfAnInstanceWithoutResponses() throws InterruptedException {
+
+        InstanceLatencyStats stats = new InstanceLatencyStats(new SimpleMeterRegistry(), 100, 1000);
+        stats.observe("slow", 80, MILLISECONDS.toNanos(1000));
+
+        Thread.sleep(500);
+
+        assertTrue(stats.cost("slow", 80) < MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void evictsTheStatsOfAnInstanceThatIsGone() {
+
+        stats.observe("fast", 80, MILLISECONDS.toNanos(10));
+        stats.observe("slow", 80, MILLISECONDS.toNanos(500));
+        choose();
+        assertEquals(2, registry.find("product-composite.load-balancer.latency-ewma").gauges().size());
+
+        instances.set(singletonList(FAST));
+        assertEquals(FAST, choose());
+
+        assertEquals(0, stats.cost("slow", 80), 0);
+        assertNull(registry.find("product-composite.load-balancer.latency-ewma").tag("instance", "slow:80").gauge());
+        assertNull(registry.find("product-composite.load-balancer.outstanding").tag("instance", "slow:80").gauge());
+        assertNotNull(registry.find("product-composite.load-balancer.latency-ewma").tag("instance", "fast:80").gauge());
+    }
+
+    private ServiceInstance choose() {
+        return loadBalancer.choose(new DefaultRequest<>()).block().getServer();
+    }
+}
@@ -31,6 +31,7 @@ import static org.springframework.cloud.stream.test.matcher.MessageQueueMatcher.
 import static org.springframework.http.HttpStatus.OK;
 import static reactor.core.publisher.Mono.just;
 import static com.studies.api.event.Event.Type.CREATE;
+import static com.studies.api.event.Event.Type.CREATE_BATCH;
 import static com.studies.api.event.Event.Type.DELETE;
 import static com.studies.microservices.composite.product.IsSameEvent.sameEventExceptCreatedAt;
 
@@ -97,18 +98,18 @@ public class MessagingTests {
         Event<Integer, Product> expectedProductEvent = new Event(CREATE, composite.getProductId(), new Product(composite.getProductId(), composite.getName(), composite.getWeight(), null));
         assertThat(queueProducts, receivesPayloadThat(sameEventExceptCreatedAt(expectedProductEvent)));
 
-        // Assert one create recommendation event queued up
+        // Assert one create recommendation batch event queued up
         assertEquals(1, queueRecommendations.size());
 
         RecommendationSummary rec = composite.getRecommendations().get(0);
-        Event<Integer, Product> expectedRecommendationEvent = new Event(CREATE, composite.getProductId(), new Recommendation(composite.getProductId(), rec.getRecommendationId(), rec.getAuthor(), rec.getRate(), rec.getContent(), null));
+        Event<Integer, Product> expectedRecommendationEvent = new Event(CREATE_BATCH, composite.getProductId(), singletonList(new Recommendation(composite.getProductId(), rec.getRecommendationId(), rec.getAuthor(), rec.getRate(), rec.getContent(), null)));
         assertThat(queueRecommendations, receivesPayloadThat(sameEventExceptCreatedAt(expectedRecommendationEvent)));
 
-        // Assert one create review event queued up
+        // Assert one create review batch event queued up
         assertEquals(1, queueReviews.size());
 
         ReviewSummary rev = composite.getReviews().get(0);
-        Event<Integer, Product> expectedReviewEvent = new Event(CREATE, composite.getProductId(), new Review(composite.getProductId(), rev.getReviewId(), rev.getAuthor(), rev.getSubject(), rev.getContent(), null));
+        Event<Integer, Product> expectedReviewEvent = new Event(CREATE_BATCH, composite.getProductId(), singletonList(new Review(composite.getProductId(), rev.getReviewId(), rev.getAuthor(), rev.getSubject(), rev.getContent(), null)));
         assertThat(queueReviews, receivesPayloadThat(sameEventExceptCreatedAt(expectedReviewEvent)));
     }
 
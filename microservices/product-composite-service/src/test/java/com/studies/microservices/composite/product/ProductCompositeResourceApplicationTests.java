@@ -1,5 +1,7 @@
 package com.studies.microservices.composite.product;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -11,6 +13,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import com.studies.api.composite.product.ProductAggregatePart;
 import com.studies.api.core.product.Product;
 import com.studies.api.core.recommendation.Recommendation;
 import com.studies.api.core.review.Review;
@@ -18,13 +22,19 @@ import com.studies.microservices.composite.product.services.ProductCompositeInte
 import com.studies.util.exceptions.InvalidInputException;
 import com.studies.util.exceptions.NotFoundException;
 
+import static com.studies.api.composite.product.ProductAggregatePart.Type.PRODUCT;
 import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(
@@ -36,6 +46,8 @@ public class ProductCompositeResourceApplicationTests {
     private static final int PRODUCT_ID_OK = 1;
     private static final int PRODUCT_ID_NOT_FOUND = 2;
     private static final int PRODUCT_ID_INVALID = 3;
+    private static final int PRODUCT_ID_FALLBACK = 4;
+    private static final int PRODUCT_ID_NO_FALLBACK = 5;
 
     @Autowired
     private WebTestClient client;
@@ -55,6 +67,15 @@ public class ProductCompositeResourceApplicationTests {
         when(compositeIntegration.getReviews(PRODUCT_ID_OK)).
                 thenReturn(Flux.fromIterable(singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address"))));
 
+        when(compositeIntegration.getProducts(anyList())).
+                thenReturn(Flux.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
+
+        when(compositeIntegration.getRecommendationsForProducts(anyList())).
+                thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")));
+
+        when(compositeIntegration.getReviewsForProducts(anyList())).
+                thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+
         when(compositeIntegration.getProduct(eq(PRODUCT_ID_NOT_FOUND), anyInt(), anyInt())).thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
 
         when(compositeIntegration.getProduct(eq(PRODUCT_ID_INVALID), anyInt(), anyInt())).thenThrow(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID));
@@ -73,6 +94,66 @@ public class ProductCompositeResourceApplicationTests {
                 .jsonPath("$.reviews.length()").isEqualTo(1);
     }
 
+    @Test
+    public void getProductByIdNotModified() {
+
+        String etag = client.get()
+                .uri("/product-composite/" + PRODUCT_ID_OK)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+
+        assertNotNull(etag);
+
+        client.get()
+                .uri("/product-composite/" + PRODUCT_ID_OK)
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isEqualTo(NOT_MODIFIED)
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    public void getProductByIdWithFields() {
+
+        getAndVerifyProduct(PRODUCT_ID_OK + "?fields=reviews", OK)
+                .jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
+                .jsonPath("$.recommendations").doesNotExist()
+                .jsonPath("$.reviews.length()").isEqualTo(1);
+
+        verify(compositeIntegration, never()).getRecommendations(PRODUCT_ID_OK);
+    }
+
+    @Test
+    public void getProductByIdPaged() {
+
+        when(compositeIntegration.getRecommendations(PRODUCT_ID_OK, 2, 0)).
+                thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")));
+
+        when(compositeIntegration.getReviews(PRODUCT_ID_OK, 2, 0)).
+                thenReturn(Flux.just(
+                        new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address"),
+                        new Review(PRODUCT_ID_OK, 2, "author", "subject", "content", "mock address")));
+
+        getAndVerifyProduct(PRODUCT_ID_OK + "?pageSize=1", OK)
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.nextRecommendationCursor").doesNotExist()
+                .jsonPath("$.reviews.length()").isEqualTo(1)
+                .jsonPath("$.reviews[0].reviewId").isEqualTo(1)
+                .jsonPath("$.nextReviewCursor").isEqualTo(1);
+    }
+
+    @Test
+    public void getProductByIdInvalidFields() {
+
+        getAndVerifyProduct(PRODUCT_ID_OK + "?fields=reviews,weight", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.message").isEqualTo("Invalid field: weight, expected recommendations or reviews");
+    }
+
     @Test
     public void getProductNotFound() {
 
@@ -89,9 +170,124 @@ public class ProductCompositeResourceApplicationTests {
                 .jsonPath("$.message").isEqualTo("INVALID: " + PRODUCT_ID_INVALID);
     }
 
+    @Test
+    public void streamProductById() {
+
+        Flux<ProductAggregatePart> parts = client.get()
+                .uri("/product-composite/" + PRODUCT_ID_OK + "/stream")
+                .accept(APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_STREAM_JSON)
+                .returnResult(ProductAggregatePart.class).getResponseBody();
+
+        StepVerifier.create(parts)
+                .expectNextMatches(part -> part.getType() == PRODUCT && part.getProductId() == PRODUCT_ID_OK)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    public void streamProductNotFound() {
+
+        when(compositeIntegration.getProduct(eq(PRODUCT_ID_NOT_FOUND), anyInt(), anyInt())).thenReturn(Mono.error(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND)));
+        when(compositeIntegration.getRecommendations(PRODUCT_ID_NOT_FOUND)).thenReturn(Flux.empty());
+        when(compositeIntegration.getReviews(PRODUCT_ID_NOT_FOUND)).thenReturn(Flux.empty());
+
+        client.get()
+                .uri("/product-composite/" + PRODUCT_ID_NOT_FOUND + "/stream")
+                .accept(APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(NOT_FOUND);
+    }
+
+    @Test
+    public void getProductsByIds() {
+
+        getAndVerifyProducts("?ids=" + PRODUCT_ID_NOT_FOUND + "," + PRODUCT_ID_OK, OK)
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].productId").isEqualTo(PRODUCT_ID_OK)
+                .jsonPath("$[0].recommendations.length()").isEqualTo(1)
+                .jsonPath("$[0].reviews.length()").isEqualTo(1);
+    }
+
+    @Test
+    public void getProductsMissingParameter() {
+
+        getAndVerifyProducts("", BAD_REQUEST)
+                .jsonPath("$.path").isEqualTo("/product-composite");
+    }
+
+    @Test
+    public void getProductFromFallbackCache() {
+
+        when(compositeIntegration.getProduct(eq(PRODUCT_ID_FALLBACK), anyInt(), anyInt())).
+                thenReturn(Mono.just(new Product(PRODUCT_ID_FALLBACK, "name", 1, "mock-address"))).
+                thenReturn(Mono.error(CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("product"))));
+        when(compositeIntegration.getRecommendations(PRODUCT_ID_FALLBACK)).thenReturn(Flux.empty());
+        when(compositeIntegration.getReviews(PRODUCT_ID_FALLBACK)).thenReturn(Flux.empty());
+
+        // A simulated delay bypasses the aggregate cache, so the second call reaches the (open) circuit breaker
+        getAndVerifyProduct(PRODUCT_ID_FALLBACK + "?delay=1", OK)
+                .jsonPath("$.name").isEqualTo("name");
+
+        getAndVerifyProduct(PRODUCT_ID_FALLBACK + "?delay=1", OK)
+                .jsonPath("$.productId").isEqualTo(PRODUCT_ID_FALLBACK)
+                .jsonPath("$.name").isEqualTo("name");
+    }
+
+    @Test
+    public void getDeletedProductNotFromFallbackCache() {
+
+        when(compositeIntegration.getProduct(eq(PRODUCT_ID_FALLBACK), anyInt(), anyInt())).
+                thenReturn(Mono.just(new Product(PRODUCT_ID_FALLBACK, "name", 1, "mock-address"))).
+                thenReturn(Mono.error(CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("product"))));
+        when(compositeIntegration.getRecommendations(PRODUCT_ID_FALLBACK)).thenReturn(Flux.empty());
+        when(compositeIntegration.getReviews(PRODUCT_ID_FALLBACK)).thenReturn(Flux.empty());
+        when(compositeIntegration.sendDeleteProductEvent(PRODUCT_ID_FALLBACK)).thenReturn(Mono.empty());
+        when(compositeIntegration.sendDeleteRecommendationsEvent(PRODUCT_ID_FALLBACK)).thenReturn(Mono.empty());
+        when(compositeIntegration.sendDeleteReviewsEvent(PRODUCT_ID_FALLBACK)).thenReturn(Mono.empty());
+
+        getAndVerifyProduct(PRODUCT_ID_FALLBACK + "?delay=1", OK);
+
+        client.delete()
+                .uri("/product-composite/" + PRODUCT_ID_FALLBACK)
+                .exchange()
+                .expectStatus().isEqualTo(OK);
+
+        getAndVerifyProduct(PRODUCT_ID_FALLBACK + "?delay=1", NOT_FOUND)
+                .jsonPath("$.message").isEqualTo("Product Id: " + PRODUCT_ID_FALLBACK + " not found in fallback cache!");
+    }
+
+    @Test
+    public void getProductNotInFallbackCache() {
+
+        when(compositeIntegration.getProduct(eq(PRODUCT_ID_NO_FALLBACK), anyInt(), anyInt())).
+                thenReturn(Mono.error(CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("product"))));
+        when(compositeIntegration.getRecommendations(PRODUCT_ID_NO_FALLBACK)).thenReturn(Flux.empty());
+        when(compositeIntegration.getReviews(PRODUCT_ID_NO_FALLBACK)).thenReturn(Flux.empty());
+
+        getAndVerifyProduct(PRODUCT_ID_NO_FALLBACK, NOT_FOUND)
+                .jsonPath("$.message").isEqualTo("Product Id: " + PRODUCT_ID_NO_FALLBACK + " not found in fallback cache!");
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerifyProducts(String productIdsQuery, HttpStatus expectedStatus) {
+        return client.get()
+                .uri("/product-composite" + productIdsQuery)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody();
+    }
+
     private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
+        return getAndVerifyProduct(String.valueOf(productId), expectedStatus);
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerifyProduct(String productIdPath, HttpStatus expectedStatus) {
         return client.get()
-                .uri("/product-composite/" + productId)
+                .uri("/product-composite/" + productIdPath)
                 .accept(APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isEqualTo(expectedStatus)
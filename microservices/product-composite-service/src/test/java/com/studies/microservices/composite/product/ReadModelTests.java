@@ -0,0 +1,202 @@
+package com.studies.microservices.composite.product;
+
+import com.studies.api.core.product.Product;
+import com.studies.api.core.recommendation.Recommendation;
+import com.studies.api.core.review.Review;
+import com.studies.api.event.Event;
+import com.studies.microservices.composite.product.services.ProductCompositeIntegration;
+import com.studies.microservices.composite.product.services.ProductReadModel;
+import com.studies.microservices.composite.product.services.ProductReadModelUpdater;
+import com.studies.util.exceptions.NotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static com.studies.api.event.Event.Type.CREATE;
+import static com.studies.api.event.Event.Type.CREATE_BATCH;
+import static com.studies.api.event.Event.Type.DELETE;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = RANDOM_PORT,
+        classes = {ProductCompositeServiceApplication.class, TestSecurityConfig.class},
+        properties = {
+                "spring.main.allow-bean-definition-overriding=true",
+                "app.read-model.enabled=true",
+                "app.read-model.dataDir="})
+public class ReadModelTests {
+
+    private static final int PRODUCT_ID_VIEW = 21;
+    private static final int PRODUCT_ID_PAGED = 22;
+    private static final int PRODUCT_ID_DELETED = 23;
+    private static final int PRODUCT_ID_NOT_IN_VIEW = 24;
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder();
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ProductReadModel readModel;
+
+    @Autowired
+    private ProductReadModelUpdater.MessageSinks channels;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    @Test
+    public void getAggregateFromReadModel() {
+
+        createProduct(PRODUCT_ID_VIEW, 1, 1);
+
+        getAndVerifyProduct(PRODUCT_ID_VIEW, OK)
+                .jsonPath("$.productId").isEqualTo(PRODUCT_ID_VIEW)
+                .jsonPath("$.name").isEqualTo("name")
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.reviews.length()").isEqualTo(1);
+
+        verify(compositeIntegration, never()).getProduct(anyInt(), anyInt(), anyInt());
+        verify(compositeIntegration, never()).getRecommendations(anyInt());
+        verify(compositeIntegration, never()).getReviews(anyInt());
+    }
+
+    @Test
+    public void getPageFromReadModel() {
+
+        createProduct(PRODUCT_ID_PAGED, 3, 1);
+
+        getAndVerifyProduct(PRODUCT_ID_PAGED + "?pageSize=2", OK)
+                .jsonPath("$.recommendations.length()").isEqualTo(2)
+                .jsonPath("$.nextRecommendationCursor").isEqualTo(2)
+                .jsonPath("$.reviews.length()").isEqualTo(1)
+                .jsonPath("$.nextReviewCursor").doesNotExist();
+
+        getAndVerifyProduct(PRODUCT_ID_PAGED + "?pageSize=2&recommendationCursor=2&fields=recommendations", OK)
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.recommendations[0].recommendationId").isEqualTo(3)
+                .jsonPath("$.reviews").doesNotExist();
+    }
+
+    @Test
+    public void deleteProductFromReadModel() {
+
+        createProduct(PRODUCT_ID_DELETED, 1, 1);
+
+        channels.inputProducts().send(new GenericMessage<>(new Event(DELETE, PRODUCT_ID_DELETED, null)));
+
+        // Not in the view anymore, so the core services are asked
+        when(compositeIntegration.getProduct(eq(PRODUCT_ID_DELETED), anyInt(), anyInt())).thenReturn(Mono.error(new NotFoundException("NOT FOUND: " + PRODUCT_ID_DELETED)));
+        when(compositeIntegration.getRecommendations(PRODUCT_ID_DELETED)).thenReturn(Flux.empty());
+        when(compositeIntegration.getReviews(PRODUCT_ID_DELETED)).thenReturn(Flux.empty());
+
+        getAndVerifyProduct(String.valueOf(PRODUCT_ID_DELETED), NOT_FOUND);
+    }
+
+    @Test
+    public void getAggregateNotInReadModelFromCoreServices() {
+
+        createProduct(PRODUCT_ID_VIEW, 1, 1);
+        assertTrue(readModel.isCaughtUp());
+
+        when(compositeIntegration.getProduct(eq(PRODUCT_ID_NOT_IN_VIEW), anyInt(), anyInt())).thenReturn(Mono.just(new Product(PRODUCT_ID_NOT_IN_VIEW, "name", 1, null)));
+        when(compositeIntegration.getRecommendations(PRODUCT_ID_NOT_IN_VIEW)).thenReturn(Flux.empty());
+        when(compositeIntegration.getReviews(PRODUCT_ID_NOT_IN_VIEW)).thenReturn(Flux.empty());
+
+        getAndVerifyProduct(PRODUCT_ID_NOT_IN_VIEW, OK)
+                .jsonPath("$.productId").isEqualTo(PRODUCT_ID_NOT_IN_VIEW);
+    }
+
+    @Test
+    public void rebuildStopsServingUntilCaughtUp() {
+
+        createProduct(PRODUCT_ID_VIEW, 1, 1);
+        assertTrue(readModel.serve(PRODUCT_ID_VIEW).isPresent());
+
+        readModel.rebuild();
+        assertFalse(readModel.isCaughtUp());
+        assertFalse(readModel.find(PRODUCT_ID_VIEW).isPresent());
+
+        createProduct(PRODUCT_ID_VIEW, 1, 1);
+        assertTrue(readModel.serve(PRODUCT_ID_VIEW).isPresent());
+    }
+
+    @Test
+    public void restartStopsServingUntilCaughtUp() {
+
+        String dir = dataDir.getRoot().getPath();
+
+        ProductReadModel persisted = new ProductReadModel(mapper, new SimpleMeterRegistry(), true, dir, 5000, false);
+        persisted.onProductEvent(new Event(CREATE, PRODUCT_ID_VIEW, new Product(PRODUCT_ID_VIEW, "name", 1, null)));
+        assertTrue(persisted.serve(PRODUCT_ID_VIEW).isPresent());
+        persisted.close();
+
+        // The events published while it was down may not be applied yet
+        ProductReadModel restarted = new ProductReadModel(mapper, new SimpleMeterRegistry(), true, dir, 5000, false);
+        assertTrue(restarted.find(PRODUCT_ID_VIEW).isPresent());
+        assertFalse(restarted.serve(PRODUCT_ID_VIEW).isPresent());
+
+        restarted.onProductEvent(new Event(CREATE, PRODUCT_ID_NOT_IN_VIEW, new Product(PRODUCT_ID_NOT_IN_VIEW, "name", 1, null)));
+        assertTrue(restarted.serve(PRODUCT_ID_VIEW).isPresent());
+        restarted.close();
+    }
+
+    private void createProduct(int productId, int recommendations, int reviews) {
+
+        channels.inputProducts().send(new GenericMessage<>(new Event(CREATE, productId, new Product(productId, "name", 1, null))));
+
+        Recommendation[] recommendationBatch = new Recommendation[recommendations];
+        for (int i = 0; i < recommendations; i++) {
+            recommendationBatch[i] = new Recommendation(productId, i + 1, "author", 1, "content", null);
+        }
+        channels.inputRecommendations().send(new GenericMessage<>(new Event(CREATE_BATCH, productId, asList(recommendationBatch))));
+
+        Review[] reviewBatch = new Review[reviews];
+        for (int i = 0; i < reviews; i++) {
+            reviewBatch[i] = new Review(productId, i + 1, "author", "subject", "content", null);
+        }
+        channels.inputReviews().send(new GenericMessage<>(new Event(CREATE_BATCH, productId, asList(reviewBatch))));
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
+        return getAndVerifyProduct(String.valueOf(productId), expectedStatus);
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerifyProduct(String productIdPath, HttpStatus expectedStatus) {
+        return client.get()
+                .uri("/product-composite/" + productIdPath)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody();
+    }
+}
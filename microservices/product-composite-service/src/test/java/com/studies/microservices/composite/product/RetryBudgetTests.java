@@ -0,0 +1,84 @@
+package com.studies.microservices.composite.product;
+
+import com.studies.microservices.composite.product.services.BudgetedRetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class RetryBudgetTests {
+
+    private SimpleMeterRegistry registry;
+    private AtomicInteger attempts;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        attempts = new AtomicInteger();
+    }
+
+    @Test
+    public void retriesServerErrors() {
+
+        BudgetedRetry retry = new BudgetedRetry(registry, 3, 0, 10, 10);
+
+        StepVerifier.create(retry.retry("product", failingCall(2, 500)))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, registry.get("product-composite.retry.retries").tag("backend", "product").counter().count(), 0.0);
+    }
+
+    @Test
+    public void stopsAfterMaxAttempts() {
+
+        BudgetedRetry retry = new BudgetedRetry(registry, 3, 0, 10, 10);
+
+        StepVerifier.create(retry.retry("product", failingCall(Integer.MAX_VALUE, 500)))
+                .expectError(WebClientResponseException.InternalServerError.class)
+                .verify();
+
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, registry.get("product-composite.retry.retries").tag("backend", "product").counter().count(), 0.0);
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() {
+
+        BudgetedRetry retry = new BudgetedRetry(registry, 3, 0, 10, 10);
+
+        StepVerifier.create(retry.retry("product", failingCall(1, 404)))
+                .expectError(WebClientResponseException.NotFound.class)
+                .verify();
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void stopsRetryingWhenTheBudgetIsExhausted() {
+
+        // Room for a single retry, each call only adds a tenth of a retry to the budget
+        BudgetedRetry retry = new BudgetedRetry(registry, 3, 0, 10, 1);
+
+        StepVerifier.create(retry.retry("review", failingCall(Integer.MAX_VALUE, 500)))
+                .expectError(WebClientResponseException.InternalServerError.class)
+                .verify();
+
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, registry.get("product-composite.retry.budget-exhausted").tag("backend", "review").counter().count(), 0.0);
+        assertEquals(0.0, registry.get("product-composite.retry.budget").gauge().value(), 0.0);
+    }
+
+    private Mono<String> failingCall(int failures, int status) {
+        return Mono.defer(() -> attempts.incrementAndGet() <= failures ?
+                Mono.error(WebClientResponseException.create(status, "error", null, null, null)) :
+                Mono.just("ok"));
+    }
+}
@@ -1,8 +1,16 @@
 package com.studies.microservices.core.product.persistence;
 
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 public interface ProductRepository extends ReactiveCrudRepository<ProductEntity, String> {
     Mono<ProductEntity> findByProductId(int productId);
+
+    Flux<ProductEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    // A single deleteMany, returns the number of deleted documents
+    Mono<Long> deleteByProductId(int productId);
 }
@@ -2,52 +2,131 @@ package com.studies.microservices.core.product.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.cloud.stream.binding.BinderAwareChannelResolver;
 import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.Headers;
+import org.springframework.messaging.handler.annotation.Payload;
+import reactor.core.publisher.Mono;
 import com.studies.api.core.product.Product;
-import com.studies.api.core.product.ProductResource;
 import com.studies.api.event.Event;
 import com.studies.util.exceptions.EventProcessingException;
+import com.studies.util.messaging.BoundedEventWriter;
+import com.studies.util.messaging.EventAcknowledgement;
+import com.studies.util.messaging.EventBatcher;
+import com.studies.util.messaging.ManualAcknowledgements;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.Collections.singletonList;
 
 @EnableBinding(Sink.class)
 public class MessageProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(MessageProcessor.class);
 
-    private final ProductResource productResource;
+    private final ProductResourceImpl productResource;
+
+    private final BinderAwareChannelResolver channelResolver;
+
+    private final String deadLetterTopic;
+
+    private final BoundedEventWriter writer;
+
+    // Only used in the bulk-consume mode, i.e. with a batch size above 1
+    private final EventBatcher<Product> batcher;
 
     @Autowired
-    public MessageProcessor(ProductResource productResource) {
+    public MessageProcessor(
+            ProductResourceImpl productResource,
+            BinderAwareChannelResolver channelResolver,
+            MeterRegistry registry,
+            @Value("${app.messaging.maxInFlight:16}") int maxInFlight,
+            @Value("${spring.cloud.stream.bindings.input.consumer.maxAttempts:3}") int maxAttempts,
+            @Value("${spring.cloud.stream.bindings.input.consumer.backOffInitialInterval:1000}") int backOffInitialInterval,
+            @Value("${spring.cloud.stream.bindings.input.consumer.backOffMaxInterval:10000}") int backOffMaxInterval,
+            @Value("${app.messaging.deadLetterTopic:error.products.productsGroup}") String deadLetterTopic,
+            @Value("${app.messaging.batchSize:1}") int batchSize,
+            @Value("${app.messaging.lingerMs:50}") int lingerMs) {
+        LOG.info("Creates a message processor, maxInFlight: {}, batchSize: {}, lingerMs: {}", maxInFlight, batchSize, lingerMs);
+
         this.productResource = productResource;
+        this.channelResolver = channelResolver;
+        this.deadLetterTopic = deadLetterTopic;
+        this.batcher = batchSize > 1 ? new EventBatcher<>(batchSize, Duration.ofMillis(lingerMs), products -> productResource.createProductsUnordered(products).block()) : null;
+
+        // In the bulk-consume mode the events of a consumer thread are written one at a time, together with those of the other threads
+        this.writer = new BoundedEventWriter(batcher != null ? 1 : maxInFlight, maxAttempts, Duration.ofMillis(backOffInitialInterval), Duration.ofMillis(backOffMaxInterval));
+
+        registry.gauge("product.messaging.writes-in-flight", writer, BoundedEventWriter::getInFlight);
+        FunctionCounter.builder("product.messaging.failed-writes", writer, BoundedEventWriter::getFailures).register(registry);
+        if (batcher != null) {
+            registry.gauge("product.messaging.batch-pending", batcher, EventBatcher::getPending);
+            FunctionCounter.builder("product.messaging.batch-fallbacks", batcher, EventBatcher::getFallbacks).register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void awaitWrites() {
+        if (!writer.awaitIdle(Duration.ofSeconds(10))) LOG.warn("Stops with {} events still in flight", writer.getInFlight());
     }
 
     @StreamListener(target = Sink.INPUT)
-    public void process(Event<Integer, Product> event) {
+    public void process(@Payload Event<Integer, Product> event, @Headers MessageHeaders headers) {
 
         LOG.info("Process message created at {}...", event.getEventCreatedAt());
 
+        Supplier<Mono<?>> write;
+
         switch (event.getEventType()) {
 
         case CREATE:
             Product product = event.getData();
             LOG.info("Create product with ID: {}", product.getProductId());
-            productResource.createProduct(product);
+            write = batcher != null ? () -> createProductsInBatch(singletonList(product)) : () -> productResource.createProduct(product);
+            break;
+
+        case CREATE_BATCH:
+            List<Product> products = event.getBatch();
+            LOG.info("Create {} products", products.size());
+            write = batcher != null ? () -> createProductsInBatch(products) : () -> productResource.createProducts(products).then();
             break;
 
         case DELETE:
             int productId = event.getKey();
             LOG.info("Delete recommendations with ProductID: {}", productId);
-            productResource.deleteProduct(productId);
+            // Creates of the product that are still waiting in a batch, on other consumer threads, are written first
+            if (batcher != null) batcher.flush();
+            write = () -> productResource.deleteProduct(productId);
             break;
 
         default:
-            String errorMessage = "Incorrect event type: " + event.getEventType() + ", expected a CREATE or DELETE event";
+            String errorMessage = "Incorrect event type: " + event.getEventType() + ", expected a CREATE, CREATE_BATCH or DELETE event";
             LOG.warn(errorMessage);
-            throw new EventProcessingException(errorMessage);
+            write = () -> Mono.error(new EventProcessingException(errorMessage));
         }
 
+        EventAcknowledgement acknowledgement = ManualAcknowledgements.of(event, headers, () -> channelResolver.resolveDestination(deadLetterTopic));
+        writer.write(event.getKey(), write, acknowledgement);
+
         LOG.info("Message processing done!");
     }
+
+    /**
+     * Creates the products together with the products of the events consumed on other threads at the same time.
+     * Products the batch failed to create are created one at a time, so that an event that still fails is retried and
+     * dead-lettered.
+     */
+    private Mono<Void> createProductsInBatch(List<Product> products) {
+        return Mono.fromRunnable(() -> batcher.write(products, product -> productResource.createProduct(product).block()));
+    }
 }
@@ -4,17 +4,26 @@ import com.studies.microservices.core.product.persistence.ProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import com.studies.api.core.product.Product;
 import com.studies.api.core.product.ProductResource;
 import com.studies.microservices.core.product.persistence.ProductEntity;
 import com.studies.util.exceptions.InvalidInputException;
 import com.studies.util.exceptions.NotFoundException;
+import com.studies.util.http.ETags;
+import com.studies.util.http.RequestDeadline;
 import com.studies.util.http.ServiceUtil;
+import com.studies.util.persistence.MongoBulkWrites;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.stream.Collectors;
 
 import static reactor.core.publisher.Mono.error;
 
@@ -25,30 +34,77 @@ public class ProductResourceImpl implements ProductResource {
 
     private final ProductRepository repository;
 
+    private final ReactiveMongoOperations operations;
+
     private final ProductMapper mapper;
 
     private final ServiceUtil serviceUtil;
 
+    private final int maxBatchIds;
+
     @Autowired
-    public ProductResourceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil) {
+    public ProductResourceImpl(
+            ProductRepository repository,
+            ReactiveMongoOperations operations,
+            ProductMapper mapper,
+            ServiceUtil serviceUtil,
+            @Value("${app.batch.maxIds:100}") int maxBatchIds) {
         this.repository = repository;
+        this.operations = operations;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
+        this.maxBatchIds = maxBatchIds;
     }
 
     @Override
-    public Product createProduct(Product body) {
+    public Mono<Product> createProduct(Product body) {
         if (body.getProductId() < 1) throw new InvalidInputException("Invalid productId: " + body.getProductId());
 
         ProductEntity entity = mapper.apiToEntity(body);
-        Mono<Product> newEntity = repository.save(entity)
+        return repository.save(entity)
                 .log()
                 .onErrorMap(
                         DuplicateKeyException.class,
                         ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()))
                 .map(e -> mapper.entityToApi(e));
+    }
+
+    public Flux<Product> createProducts(List<Product> body) {
+
+        body.forEach(product -> {
+            if (product.getProductId() < 1) throw new InvalidInputException("Invalid productId: " + product.getProductId());
+        });
+
+        // All entities are new, so they are written with a single insertMany
+        List<ProductEntity> entities = body.stream().map(e -> mapper.apiToEntity(e)).collect(Collectors.toList());
+        return repository.saveAll(entities)
+                .log()
+                .onErrorMap(
+                        DuplicateKeyException.class,
+                        ex -> new InvalidInputException("Duplicate key in a batch of " + body.size() + " products"))
+                .map(e -> mapper.entityToApi(e))
+                .doOnComplete(() -> LOG.debug("createProducts: created {} product entities", body.size()));
+    }
 
-        return newEntity.block();
+    /**
+     * Creates the valid products with one unordered bulk insert, a product that can't be created, e.g. a duplicate,
+     * doesn't keep the others from being created.
+     *
+     * @return the products that weren't created, invalid ones included
+     */
+    public Mono<List<Product>> createProductsUnordered(List<Product> body) {
+
+        List<Product> notCreated = new ArrayList<>();
+        List<Product> valid = new ArrayList<>();
+        body.forEach(product -> (product.getProductId() < 1 ? notCreated : valid).add(product));
+
+        List<ProductEntity> entities = valid.stream().map(e -> mapper.apiToEntity(e)).collect(Collectors.toList());
+        return MongoBulkWrites.insertUnordered(operations, ProductEntity.class, entities)
+                .map(failedIndexes -> {
+                    failedIndexes.forEach(i -> notCreated.add(valid.get(i)));
+                    LOG.debug("createProductsUnordered: created {} of {} products", valid.size() - failedIndexes.size(), body.size());
+                    return notCreated;
+                });
     }
 
     @Override
@@ -60,23 +116,44 @@ public class ProductResourceImpl implements ProductResource {
 
         if (faultPercent > 0) throwErrorIfBadLuck(faultPercent);
 
-        return repository.findByProductId(productId)
+        Mono<Product> product = RequestDeadline.check()
+                .then(repository.findByProductId(productId))
                 .switchIfEmpty(error(new NotFoundException("No product found for productId: " + productId)))
                 .log()
                 .map(e -> mapper.entityToApi(e))
                 .map(e -> {e.setServiceAddress(serviceUtil.getServiceAddress()); return e;});
+
+        return ETags.checkNotModified(product, p -> p.getProductId() + "-" + p.getVersion());
     }
 
     @Override
-    public void deleteProduct(int productId) {
+    public Flux<Product> getProducts(List<Integer> productIds) {
+
+        // Duplicate ids are dropped before the ids are counted against the limit
+        List<Integer> distinctProductIds = productIds.stream().distinct().collect(Collectors.toList());
+        if (distinctProductIds.size() > maxBatchIds) throw new InvalidInputException("Too many productIds: " + distinctProductIds.size() + ", at most " + maxBatchIds + " are allowed");
+        distinctProductIds.forEach(productId -> {
+            if (productId < 1) throw new InvalidInputException("Invalid productId: " + productId);
+        });
+
+        LOG.debug("getProducts: tries to find products for {} productIds", distinctProductIds.size());
+
+        // All products are read with a single $in query on the unique productId index
+        return RequestDeadline.check()
+                .thenMany(repository.findByProductIdIn(distinctProductIds))
+                .log()
+                .map(e -> mapper.entityToApi(e))
+                .map(e -> {e.setServiceAddress(serviceUtil.getServiceAddress()); return e;});
+    }
+
+    @Override
+    public Mono<Void> deleteProduct(int productId) {
         if (productId < 1) throw new InvalidInputException("Invalid productId: " + productId);
 
         LOG.debug("deleteProduct: tries to delete an entity with productId: {}", productId);
-        repository.findByProductId(productId)
-                .log()
-                .map(e -> repository.delete(e))
-                .flatMap(e -> e)
-                .block();
+        return repository.deleteByProductId(productId)
+                .doOnNext(count -> LOG.debug("deleteProduct: deleted {} entities with productId: {}", count, productId))
+                .then();
     }
 
     private void simulateDelay(int delay) {
@@ -0,0 +1,100 @@
+package com.studies.microservices.core.product;
+
+import com.studies.microservices.core.product.persistence.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.test.context.junit4.SpringRunner;
+import com.studies.api.core.product.Product;
+import com.studies.api.event.Event;
+import com.studies.util.messaging.ConcurrentConsumers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static com.studies.api.event.Event.Type.CREATE;
+import static com.studies.api.event.Event.Type.DELETE;
+import static com.studies.util.messaging.ConcurrentConsumers.awaitUntil;
+import static com.studies.util.messaging.ConcurrentConsumers.countFailed;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "spring.data.mongodb.port: 0",
+        "app.messaging.batchSize=5",
+        "app.messaging.lingerMs=1000"})
+public class BatchWritesTests {
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private Sink channels;
+
+    private ConcurrentConsumers consumers;
+
+    @Before
+    public void setupDb() {
+        repository.deleteAll().block();
+        consumers = new ConcurrentConsumers(channels.input(), 5);
+    }
+
+    @After
+    public void stopConsumers() {
+        consumers.close();
+    }
+
+    @Test
+    public void createsProductsOfConcurrentEvents() throws InterruptedException {
+
+        List<Future<Void>> sends = consumers.sendAll(IntStream.rangeClosed(1, 5)
+                .mapToObj(productId -> createProductEvent(productId))
+                .collect(Collectors.toList()));
+
+        assertEquals(0, countFailed(sends));
+        assertEquals(5, (long) repository.count().block());
+    }
+
+    @Test
+    public void writesProductsOfAFailedBatchOneAtATime() throws Exception {
+
+        consumers.sendNow(createProductEvent(1));
+
+        // A batch with a duplicate of the first product and an invalid one, only their events fail
+        List<Future<Void>> sends = consumers.sendAll(IntStream.rangeClosed(0, 4)
+                .mapToObj(productId -> createProductEvent(productId))
+                .collect(Collectors.toList()));
+
+        assertEquals(2, countFailed(sends));
+        assertEquals(4, (long) repository.count().block());
+    }
+
+    @Test
+    public void deleteIsWrittenAfterTheCreateOfAnotherThread() throws Exception {
+
+        // The create waits in the batch for the linger, until the delete of the same product comes on another thread
+        Future<Void> create = consumers.send(createProductEvent(1));
+        awaitUntil(() -> registry.get("product.messaging.batch-pending").gauge().value() == 1, Duration.ofSeconds(5));
+
+        consumers.sendNow(new Event(DELETE, 1, null));
+        create.get();
+
+        assertEquals(0, (long) repository.count().block());
+    }
+
+    private Event<Integer, Product> createProductEvent(int productId) {
+        return new Event(CREATE, productId, new Product(productId, "Name " + productId, productId, "SA"));
+    }
+}
@@ -0,0 +1,122 @@
+package com.studies.microservices.core.product;
+
+import com.studies.microservices.core.product.persistence.ProductRepository;
+import com.studies.microservices.core.product.services.MessageProcessor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binding.BinderAwareChannelResolver;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.cloud.stream.test.binder.MessageCollector;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.junit4.SpringRunner;
+import com.studies.api.core.product.Product;
+import com.studies.api.event.Event;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static com.studies.api.event.Event.Type.CREATE;
+import static com.studies.api.event.Event.Type.DELETE;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "spring.data.mongodb.port: 0",
+        "app.messaging.maxInFlight=8",
+        "spring.cloud.stream.bindings.input.consumer.backOffInitialInterval=10",
+        "spring.cloud.stream.bindings.input.consumer.backOffMaxInterval=10"})
+public class ConcurrentWritesTests {
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private Sink channels;
+
+    @Autowired
+    private MessageProcessor messageProcessor;
+
+    @Autowired
+    private BinderAwareChannelResolver channelResolver;
+
+    @Autowired
+    private MessageCollector collector;
+
+    // Events are acknowledged manually, as with the Kafka binder and autoCommitOffset: false
+    private final List<Integer> acknowledged = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setupDb() {
+        repository.deleteAll().block();
+    }
+
+    @Test
+    public void writesInFlight() {
+
+        for (int i = 1; i <= 20; i++) {
+            sendEvent(i, new Event<>(CREATE, i, new Product(i, "Name " + i, i, "SA")));
+        }
+        messageProcessor.awaitWrites();
+
+        assertEquals(20, (long) repository.count().block());
+        assertEquals(20, acknowledged.size());
+    }
+
+    @Test
+    public void writesOfTheSameProductInOrder() {
+
+        int sequence = 0;
+        for (int i = 0; i < 10; i++) {
+            sendEvent(++sequence, new Event<>(CREATE, 1, new Product(1, "Name 1", 1, "SA")));
+            sendEvent(++sequence, new Event<>(DELETE, 1, (Product) null));
+        }
+        sendEvent(++sequence, new Event<>(CREATE, 1, new Product(1, "Name 1", 1, "SA")));
+        messageProcessor.awaitWrites();
+
+        assertNotNull(repository.findByProductId(1).block());
+    }
+
+    @Test
+    public void acknowledgesEventsInTheOrderTheyWereConsumed() {
+
+        // The write of the second event fails and is retried, the third one completes first but isn't acknowledged before it
+        sendEvent(1, new Event<>(CREATE, 1, new Product(1, "Name 1", 1, "SA")));
+        sendEvent(2, new Event<>(CREATE, 1, new Product(1, "Name 1", 1, "SA")));
+        sendEvent(3, new Event<>(CREATE, 3, new Product(3, "Name 3", 3, "SA")));
+        messageProcessor.awaitWrites();
+
+        assertEquals(asList(1, 2, 3), acknowledged);
+    }
+
+    @Test
+    public void deadLettersAnEventThatStillFails() {
+
+        BlockingQueue<Message<?>> deadLetters = collector.forChannel(channelResolver.resolveDestination("error.products.productsGroup"));
+
+        sendEvent(1, new Event<>(CREATE, 1, new Product(1, "Name 1", 1, "SA")));
+        sendEvent(2, new Event<>(CREATE, 1, new Product(1, "Name 1", 1, "SA")));
+        messageProcessor.awaitWrites();
+
+        assertEquals(1, (long) repository.count().block());
+        assertEquals(asList(1, 2), acknowledged);
+
+        Message<?> deadLetter = deadLetters.poll();
+        assertNotNull(deadLetter);
+        assertEquals("Duplicate key, Product Id: 1", deadLetter.getHeaders().get("x-exception-message"));
+    }
+
+    private void sendEvent(int sequence, Event<Integer, Product> event) {
+        channels.input().send(MessageBuilder.withPayload(event)
+                .setHeader(KafkaHeaders.ACKNOWLEDGMENT, (Acknowledgment) () -> acknowledged.add(sequence))
+                .build());
+    }
+}
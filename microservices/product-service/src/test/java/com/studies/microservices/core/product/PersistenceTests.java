@@ -8,9 +8,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.test.context.junit4.SpringRunner;
 import reactor.test.StepVerifier;
 import com.studies.microservices.core.product.persistence.ProductEntity;
+import com.studies.util.persistence.MongoBulkWrites;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
 
 @RunWith(SpringRunner.class)
 @DataMongoTest
@@ -19,6 +24,9 @@ public class PersistenceTests {
     @Autowired
     private ProductRepository repository;
 
+    @Autowired
+    private ReactiveMongoOperations operations;
+
     private ProductEntity savedEntity;
 
     @Before
@@ -71,6 +79,12 @@ public class PersistenceTests {
         StepVerifier.create(repository.existsById(savedEntity.getId())).expectNext(false).verifyComplete();
     }
 
+    @Test
+   	public void deleteByProductId() {
+        StepVerifier.create(repository.deleteByProductId(savedEntity.getProductId())).expectNext(1L).verifyComplete();
+        StepVerifier.create(repository.existsById(savedEntity.getId())).expectNext(false).verifyComplete();
+    }
+
     @Test
    	public void getByProductId() {
         StepVerifier.create(repository.findByProductId(savedEntity.getProductId()))
@@ -78,6 +92,27 @@ public class PersistenceTests {
                 .verifyComplete();
     }
 
+    @Test
+   	public void getByProductIds() {
+        StepVerifier.create(repository.save(new ProductEntity(2, "n", 2))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.save(new ProductEntity(3, "n", 3))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(repository.findByProductIdIn(asList(1, 3, 4)).map(ProductEntity::getProductId).sort())
+                .expectNext(1, 3)
+                .verifyComplete();
+    }
+
+    @Test
+   	public void insertUnordered() {
+        // The duplicate of the saved entity is the only one that isn't inserted
+        StepVerifier.create(MongoBulkWrites.insertUnordered(operations, ProductEntity.class, asList(new ProductEntity(2, "n", 2), new ProductEntity(1, "n", 1), new ProductEntity(3, "n", 3))))
+                .expectNext(singleton(1))
+                .verifyComplete();
+
+        StepVerifier.create(repository.findByProductId(3).map(ProductEntity::getVersion)).expectNext(0).verifyComplete();
+        StepVerifier.create(repository.count()).expectNext(3l).verifyComplete();
+    }
+
     @Test
    	public void duplicateError() {
         ProductEntity entity = new ProductEntity(savedEntity.getProductId(), "n", 1);
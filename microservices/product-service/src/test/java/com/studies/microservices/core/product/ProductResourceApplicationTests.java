@@ -16,6 +16,7 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import com.studies.api.core.product.Product;
 import com.studies.api.event.Event;
 import com.studies.util.exceptions.InvalidInputException;
+import com.studies.util.http.RequestDeadline;
 
 import static org.junit.Assert.*;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -28,7 +29,8 @@ import static com.studies.api.event.Event.Type.DELETE;
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
         "spring.data.mongodb.port: 0",
-        "server.error.include-message=always"})
+        "server.error.include-message=always",
+        "app.batch.maxIds=3"})
 public class ProductResourceApplicationTests {
 
     @Autowired
@@ -65,6 +67,50 @@ public class ProductResourceApplicationTests {
                 .jsonPath("$.productId").isEqualTo(productId);
     }
 
+    @Test
+    public void getProductsByIds() {
+
+        sendCreateProductEvent(1);
+        sendCreateProductEvent(2);
+        sendCreateProductEvent(3);
+
+        client.get()
+                .uri("/product?ids=1,3,4")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    public void getProductsByDuplicateIds() {
+
+        sendCreateProductEvent(1);
+
+        client.get()
+                .uri("/product?ids=1,1,1,1,1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    public void getProductsTooManyIds() {
+
+        client.get()
+                .uri("/product?ids=1,2,3,4")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Too many productIds: 4, at most 3 are allowed");
+    }
+
     @Test
     public void duplicateError() {
 
@@ -131,6 +177,52 @@ public class ProductResourceApplicationTests {
                 .jsonPath("$.message").isEqualTo("Invalid productId: " + productIdInvalid);
     }
 
+    @Test
+    public void getProductDeadlineExceeded() {
+
+        int productId = 1;
+
+        sendCreateProductEvent(productId);
+
+        client.get()
+                .uri("/product/" + productId)
+                .header(RequestDeadline.HEADER, "0")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(GATEWAY_TIMEOUT)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.path").isEqualTo("/product/" + productId);
+
+        getAndVerifyProduct(productId, OK)
+                .jsonPath("$.productId").isEqualTo(productId);
+    }
+
+    @Test
+    public void getProductNotModified() {
+
+        int productId = 1;
+
+        sendCreateProductEvent(productId);
+
+        client.get()
+                .uri("/product/" + productId)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().valueEquals("ETag", "\"1-0\"")
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(0);
+
+        client.get()
+                .uri("/product/" + productId)
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch("\"1-0\"")
+                .exchange()
+                .expectStatus().isEqualTo(NOT_MODIFIED)
+                .expectBody().isEmpty();
+    }
+
     private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
         return getAndVerifyProduct("/" + productId, expectedStatus);
     }
@@ -1,8 +1,23 @@
 package com.studies.microservices.core.recommendation.persistence;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
 
 public interface RecommendationRepository extends ReactiveCrudRepository<RecommendationEntity, String> {
     Flux<RecommendationEntity> findByProductId(int productId);
+
+    // Served in order by the unique (productId, recommendationId) index
+    Flux<RecommendationEntity> findByProductIdOrderByRecommendationIdAsc(int productId);
+
+    // Keyset pagination, served by the unique (productId, recommendationId) index
+    Flux<RecommendationEntity> findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(int productId, int recommendationId, Pageable pageable);
+
+    Flux<RecommendationEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    // A single deleteMany, returns the number of deleted documents
+    Mono<Long> deleteByProductId(int productId);
 }
@@ -3,7 +3,11 @@ package com.studies.microservices.core.recommendation.services;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -12,7 +16,15 @@ import com.studies.api.core.recommendation.RecommendationResource;
 import com.studies.microservices.core.recommendation.persistence.RecommendationEntity;
 import com.studies.microservices.core.recommendation.persistence.RecommendationRepository;
 import com.studies.util.exceptions.InvalidInputException;
+import com.studies.util.http.ETags;
+import com.studies.util.http.RequestDeadline;
 import com.studies.util.http.ServiceUtil;
+import com.studies.util.persistence.MongoBulkWrites;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
 
 @RestController
 public class RecommendationResourceImpl implements RecommendationResource {
@@ -21,49 +33,130 @@ public class RecommendationResourceImpl implements RecommendationResource {
 
     private final RecommendationRepository repository;
 
+    private final ReactiveMongoOperations operations;
+
     private final RecommendationMapper mapper;
 
     private final ServiceUtil serviceUtil;
 
+    private final int maxBatchIds;
+
     @Autowired
-    public RecommendationResourceImpl(RecommendationRepository repository, RecommendationMapper mapper, ServiceUtil serviceUtil) {
+    public RecommendationResourceImpl(
+            RecommendationRepository repository,
+            ReactiveMongoOperations operations,
+            RecommendationMapper mapper,
+            ServiceUtil serviceUtil,
+            @Value("${app.batch.maxIds:100}") int maxBatchIds) {
         this.repository = repository;
+        this.operations = operations;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
+        this.maxBatchIds = maxBatchIds;
     }
 
     @Override
-    public Recommendation createRecommendation(Recommendation body) {
+    public Mono<Recommendation> createRecommendation(Recommendation body) {
         if (body.getProductId() < 1) throw new InvalidInputException("Invalid productId: " + body.getProductId());
 
         RecommendationEntity entity = mapper.apiToEntity(body);
-        Mono<Recommendation> newEntity = repository.save(entity)
+        return repository.save(entity)
                 .log()
                 .onErrorMap(
                         DuplicateKeyException.class,
                         ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId() + ", Recommendation Id:" + body.getRecommendationId()))
                 .map(e -> mapper.entityToApi(e));
+    }
+
+    public Flux<Recommendation> createRecommendations(List<Recommendation> body) {
+
+        body.forEach(recommendation -> {
+            if (recommendation.getProductId() < 1) throw new InvalidInputException("Invalid productId: " + recommendation.getProductId());
+        });
 
-        return newEntity.block();
+        // All entities are new, so they are written with a single insertMany
+        return repository.saveAll(mapper.apiListToEntityList(body))
+                .log()
+                .onErrorMap(
+                        DuplicateKeyException.class,
+                        ex -> new InvalidInputException("Duplicate key in a batch of " + body.size() + " recommendations"))
+                .map(e -> mapper.entityToApi(e))
+                .doOnComplete(() -> LOG.debug("createRecommendations: created {} recommendation entities", body.size()));
+    }
+
+    /**
+     * Creates the valid recommendations with one unordered bulk insert, a recommendation that can't be created, e.g. a
+     * duplicate, doesn't keep the others from being created.
+     *
+     * @return the recommendations that weren't created, invalid ones included
+     */
+    public Mono<List<Recommendation>> createRecommendationsUnordered(List<Recommendation> body) {
+
+        List<Recommendation> notCreated = new ArrayList<>();
+        List<Recommendation> valid = new ArrayList<>();
+        body.forEach(recommendation -> (recommendation.getProductId() < 1 ? notCreated : valid).add(recommendation));
+
+        List<RecommendationEntity> entities = valid.stream().map(e -> mapper.apiToEntity(e)).collect(toList());
+        return MongoBulkWrites.insertUnordered(operations, RecommendationEntity.class, entities)
+                .map(failedIndexes -> {
+                    failedIndexes.forEach(i -> notCreated.add(valid.get(i)));
+                    LOG.debug("createRecommendationsUnordered: created {} of {} recommendations", valid.size() - failedIndexes.size(), body.size());
+                    return notCreated;
+                });
     }
 
     @Override
-    public Flux<Recommendation> getRecommendations(int productId) {
+    public Flux<Recommendation> getRecommendations(int productId, int pageSize, int cursor) {
 
         if (productId < 1) throw new InvalidInputException("Invalid productId: " + productId);
+        if (pageSize < 0) throw new InvalidInputException("Invalid pageSize: " + pageSize);
+        if (cursor < 0) throw new InvalidInputException("Invalid cursor: " + cursor);
+
+        Flux<RecommendationEntity> entities = (pageSize == 0 && cursor == 0) ?
+                repository.findByProductIdOrderByRecommendationIdAsc(productId) :
+                repository.findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(productId, cursor, pageSize == 0 ? Pageable.unpaged() : PageRequest.of(0, pageSize));
+
+        Flux<Recommendation> recommendations = RequestDeadline.check()
+                .thenMany(entities)
+                .log()
+                .map(e -> mapper.entityToApi(e))
+                .map(e -> { e.setServiceAddress(serviceUtil.getServiceAddress()); return e; });
+
+        // Only pages get an ETag, it is computed from all entities of the response, which are buffered for it
+        if (pageSize == 0) return recommendations;
+
+        return ETags.checkNotModified(recommendations, list -> ETags.hash(list.stream()
+                .map(r -> r.getRecommendationId() + "-" + r.getVersion())
+                .collect(toList())));
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendationsForProducts(List<Integer> productIds) {
+
+        // Duplicate ids are dropped before the ids are counted against the limit
+        List<Integer> distinctProductIds = productIds.stream().distinct().collect(toList());
+        if (distinctProductIds.size() > maxBatchIds) throw new InvalidInputException("Too many productIds: " + distinctProductIds.size() + ", at most " + maxBatchIds + " are allowed");
+        distinctProductIds.forEach(productId -> {
+            if (productId < 1) throw new InvalidInputException("Invalid productId: " + productId);
+        });
+
+        LOG.debug("getRecommendationsForProducts: tries to find recommendations for {} productIds", distinctProductIds.size());
 
-        return repository.findByProductId(productId)
+        // All recommendations are read with a single $in query on the (productId, recommendationId) index
+        return RequestDeadline.check()
+                .thenMany(repository.findByProductIdIn(distinctProductIds))
                 .log()
                 .map(e -> mapper.entityToApi(e))
                 .map(e -> { e.setServiceAddress(serviceUtil.getServiceAddress()); return e; });
     }
 
     @Override
-    public void deleteRecommendations(int productId) {
+    public Mono<Void> deleteRecommendations(int productId) {
         if (productId < 1) throw new InvalidInputException("Invalid productId: " + productId);
 
         LOG.debug("deleteRecommendations: tries to delete recommendations for the product with productId: {}", productId);
-        repository.deleteAll(repository.findByProductId(productId))
-                .block();
+        return repository.deleteByProductId(productId)
+                .doOnNext(count -> LOG.debug("deleteRecommendations: deleted {} recommendations for the product with productId: {}", count, productId))
+                .then();
     }
 }
@@ -7,12 +7,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.test.context.junit4.SpringRunner;
 import com.studies.microservices.core.recommendation.persistence.RecommendationEntity;
 import com.studies.microservices.core.recommendation.persistence.RecommendationRepository;
+import com.studies.util.persistence.MongoBulkWrites;
 
 import java.util.List;
+import java.util.Set;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.*;
 
@@ -23,6 +28,9 @@ public class PersistenceTests {
     @Autowired
     private RecommendationRepository repository;
 
+    @Autowired
+    private ReactiveMongoOperations operations;
+
     private RecommendationEntity savedEntity;
 
     @Before
@@ -64,6 +72,15 @@ public class PersistenceTests {
         assertFalse(repository.existsById(savedEntity.getId()).block());
     }
 
+    @Test
+   	public void deleteByProductId() {
+        repository.save(new RecommendationEntity(1, 3, "a", 3, "c")).block();
+        repository.save(new RecommendationEntity(2, 1, "a", 3, "c")).block();
+
+        assertEquals(2L, (long) repository.deleteByProductId(1).block());
+        assertEquals(1L, (long) repository.count().block());
+    }
+
     @Test
    	public void getByProductId() {
         List<RecommendationEntity> entityList = repository.findByProductId(savedEntity.getProductId()).collectList().block();
@@ -72,6 +89,29 @@ public class PersistenceTests {
         assertEqualsRecommendation(savedEntity, entityList.get(0));
     }
 
+    @Test
+   	public void getByProductIds() {
+        repository.save(new RecommendationEntity(1, 3, "a", 3, "c")).block();
+        repository.save(new RecommendationEntity(2, 1, "a", 3, "c")).block();
+        repository.save(new RecommendationEntity(3, 1, "a", 3, "c")).block();
+
+        List<RecommendationEntity> entityList = repository.findByProductIdIn(asList(1, 2, 4)).collectList().block();
+
+        assertThat(entityList, hasSize(3));
+    }
+
+    @Test
+   	public void insertUnordered() {
+        // The duplicate of the saved entity is the only one that isn't inserted
+        Set<Integer> failedIndexes = MongoBulkWrites.insertUnordered(operations, RecommendationEntity.class, asList(
+                new RecommendationEntity(1, 3, "a", 3, "c"),
+                new RecommendationEntity(1, 2, "a", 3, "c"),
+                new RecommendationEntity(2, 1, "a", 3, "c"))).block();
+
+        assertEquals(singleton(1), failedIndexes);
+        assertEquals(3L, (long) repository.count().block());
+    }
+
     @Test(expected = DuplicateKeyException.class)
    	public void duplicateError() {
         RecommendationEntity entity = new RecommendationEntity(1, 2, "a", 3, "c");
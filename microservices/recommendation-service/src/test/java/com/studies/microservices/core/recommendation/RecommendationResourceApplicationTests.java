@@ -19,18 +19,25 @@ import com.studies.api.event.Event;
 import com.studies.microservices.core.recommendation.persistence.RecommendationRepository;
 import com.studies.util.exceptions.InvalidInputException;
 
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static reactor.core.publisher.Mono.just;
 import static com.studies.api.event.Event.Type.CREATE;
+import static com.studies.api.event.Event.Type.CREATE_BATCH;
 import static com.studies.api.event.Event.Type.DELETE;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
         "spring.data.mongodb.port: 0",
-        "server.error.include-message=always"})
+        "server.error.include-message=always",
+        "app.batch.maxIds=3"})
 public class RecommendationResourceApplicationTests {
 
     @Autowired
@@ -67,6 +74,101 @@ public class RecommendationResourceApplicationTests {
                 .jsonPath("$[2].recommendationId").isEqualTo(3);
     }
 
+    @Test
+    public void getRecommendationsByProductIds() {
+
+        sendCreateRecommendationEvent(1, 1);
+        sendCreateRecommendationEvent(1, 2);
+        sendCreateRecommendationEvent(2, 1);
+        sendCreateRecommendationEvent(3, 1);
+
+        getAndVerifyRecommendationsByProductId("?productIds=1,2", OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    public void getRecommendationsByDuplicateProductIds() {
+
+        sendCreateRecommendationEvent(1, 1);
+
+        getAndVerifyRecommendationsByProductId("?productIds=1,1,1,1,1", OK)
+                .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    public void getRecommendationsTooManyProductIds() {
+
+        getAndVerifyRecommendationsByProductId("?productIds=1,2,3,4", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/recommendation")
+                .jsonPath("$.message").isEqualTo("Too many productIds: 4, at most 3 are allowed");
+    }
+
+    @Test
+    public void createRecommendationsInBatch() {
+
+        int productId = 1;
+
+        List<Recommendation> recommendations = IntStream.rangeClosed(1, 3)
+                .mapToObj(id -> new Recommendation(productId, id, "Author " + id, id, "Content " + id, "SA"))
+                .collect(Collectors.toList());
+        input.send(new GenericMessage<>(new Event<>(CREATE_BATCH, productId, recommendations)));
+
+        Assert.assertEquals(3, (long) repository.findByProductId(productId).count().block());
+
+        getAndVerifyRecommendationsByProductId(productId, OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    public void getRecommendationsPage() {
+
+        int productId = 1;
+
+        IntStream.rangeClosed(1, 5).forEach(recommendationId -> sendCreateRecommendationEvent(productId, recommendationId));
+
+        getAndVerifyRecommendationsByProductId("?productId=" + productId + "&pageSize=2&cursor=2", OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].recommendationId").isEqualTo(3)
+                .jsonPath("$[1].recommendationId").isEqualTo(4);
+
+        getAndVerifyRecommendationsByProductId("?productId=" + productId + "&pageSize=2&cursor=4", OK)
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].recommendationId").isEqualTo(5);
+    }
+
+    @Test
+    public void getRecommendationsPageNotModified() {
+
+        int productId = 1;
+
+        IntStream.rangeClosed(1, 3).forEach(recommendationId -> sendCreateRecommendationEvent(productId, recommendationId));
+
+        String etag = client.get()
+                .uri("/recommendation?productId=" + productId + "&pageSize=2")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+
+        assertNotNull(etag);
+
+        client.get()
+                .uri("/recommendation?productId=" + productId + "&pageSize=2")
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isEqualTo(NOT_MODIFIED);
+
+        // Unpaged results aren't buffered to compute an ETag
+        client.get()
+                .uri("/recommendation?productId=" + productId)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().doesNotExist("ETag");
+    }
+
     @Test
     public void duplicateError() {
 
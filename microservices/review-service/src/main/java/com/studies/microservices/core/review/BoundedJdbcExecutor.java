@@ -0,0 +1,99 @@
+package com.studies.microservices.core.review;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executor blocking jdbc work is offloaded to, with a limit on the tasks it takes on and metrics on how long they
+ * wait before they start.
+ * <p>
+ * At most {@code maxTasks} tasks are queued or running at a time, further tasks are rejected right away instead of
+ * queueing up behind the busy threads until the callers time out. The threads are those of the given executor, a fixed
+ * pool the size of the connection pool or one virtual thread per task. With virtual threads every task starts at once
+ * and the wait is for a connection, see the {@code hikaricp.connections.pending} gauge.
+ */
+public class BoundedJdbcExecutor extends AbstractExecutorService {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejections;
+
+    public BoundedJdbcExecutor(ExecutorService executor, int maxTasks, MeterRegistry registry) {
+        this.executor = executor;
+        this.permits = new Semaphore(maxTasks);
+
+        registry.gauge("review.jdbc-scheduler.queued", queued);
+        registry.gauge("review.jdbc-scheduler.active", active);
+        this.waitTimer = registry.timer("review.jdbc-scheduler.wait");
+        this.rejections = registry.counter("review.jdbc-scheduler.rejections");
+    }
+
+    @Override
+    public void execute(Runnable task) {
+
+        if (!permits.tryAcquire()) {
+            rejections.increment();
+            throw new RejectedExecutionException("Too many queued jdbc tasks, " + queued.get() + " queued and " + active.get() + " running");
+        }
+
+        long submittedAt = System.nanoTime();
+        queued.incrementAndGet();
+
+        try {
+            executor.execute(() -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    permits.release();
+                }
+            });
+
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
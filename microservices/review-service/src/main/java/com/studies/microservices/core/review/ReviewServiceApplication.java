@@ -1,39 +1,78 @@
 package com.studies.microservices.core.review;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-@SpringBootApplication
+// The R2DBC connection pool of the r2dbc profile is declared in R2dbcConfiguration
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 @ComponentScan("com.studies")
 public class ReviewServiceApplication {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceApplication.class);
 
 	private final Integer connectionPoolSize;
+	private final String schedulerType;
+	private final int schedulerQueueCapacity;
 
 	@Autowired
 	public ReviewServiceApplication(
 			@Value("${spring.datasource.maximum-pool-size:10}")
-			Integer connectionPoolSize
+			Integer connectionPoolSize,
+			@Value("${app.jdbc-scheduler.type:bounded}")
+			String schedulerType,
+			@Value("${app.jdbc-scheduler.queueCapacity:100}")
+			int schedulerQueueCapacity
 	) {
 		this.connectionPoolSize = connectionPoolSize;
+		this.schedulerType = schedulerType;
+		this.schedulerQueueCapacity = schedulerQueueCapacity;
 	}
 
 	@Bean
-	public Scheduler jdbcScheduler() {
-		LOG.info("Creates a jdbcScheduler with connectionPoolSize = " + connectionPoolSize);
-		return Schedulers.fromExecutor(Executors.newFixedThreadPool(connectionPoolSize));
+	@Profile("!r2dbc")
+	public Scheduler jdbcScheduler(MeterRegistry registry) {
+		LOG.info("Creates a jdbcScheduler with connectionPoolSize = {}, type = {}, queueCapacity = {}", connectionPoolSize, schedulerType, schedulerQueueCapacity);
+
+		ExecutorService threads = "virtual".equals(schedulerType) ?
+				virtualThreadPerTaskExecutor().orElseGet(this::newJdbcThreadPool) :
+				newJdbcThreadPool();
+
+		return Schedulers.fromExecutorService(new BoundedJdbcExecutor(threads, connectionPoolSize + schedulerQueueCapacity, registry), "jdbc");
+	}
+
+	private ExecutorService newJdbcThreadPool() {
+		return Executors.newFixedThreadPool(connectionPoolSize, new CustomizableThreadFactory("jdbc-"));
+	}
+
+	/**
+	 * Virtual threads are only available on Java 21 and later, while the service is built for Java 11.
+	 */
+	private static Optional<ExecutorService> virtualThreadPerTaskExecutor() {
+		try {
+			return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+
+		} catch (ReflectiveOperationException e) {
+			LOG.warn("Virtual threads are not available on Java {}, uses a pool of platform threads", Runtime.version());
+			return Optional.empty();
+		}
 	}
 
 	public static void main(String[] args) {
@@ -0,0 +1,146 @@
+package com.studies.microservices.core.review.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import com.studies.util.exceptions.ServiceOverloadedException;
+import com.studies.util.http.RequestDeadline;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/**
+ * The blocking JPA repository behind the {@link ReviewStore}. Reads are made on the jdbc scheduler, writes on the
+ * calling thread, which is the consumer thread of the message binder. Reads the jdbc scheduler has no room for fail
+ * with a {@link ServiceOverloadedException}.
+ * <p>
+ * Reads select reviews straight into {@link ReviewRow} projections. The reviews of a product are read as a whole, so
+ * that they can be cached by the service layer. The reviews of many products at once, which may be many and are rarely
+ * asked for twice, are streamed in a read-only transaction instead, fetching {@code fetchSize} rows at a time. On MySQL a fetch size of {@code Integer.MIN_VALUE} streams the rows one by one
+ * instead of buffering the whole result in the driver.
+ */
+@Component
+@Profile("!r2dbc")
+public class JpaReviewStore implements ReviewStore {
+
+    private final ReviewRepository repository;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Scheduler scheduler;
+
+    private final int fetchSize;
+
+    @Autowired
+    public JpaReviewStore(
+            ReviewRepository repository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            Scheduler scheduler,
+            @Value("${app.review-stream.fetchSize:500}") int fetchSize) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.scheduler = scheduler;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Mono<ReviewEntity> create(ReviewEntity entity) {
+        return Mono.fromCallable(() -> repository.save(entity));
+    }
+
+    @Override
+    public Flux<ReviewEntity> createAll(List<ReviewEntity> entities) {
+        // saveAll() runs in one transaction
+        return Flux.defer(() -> Flux.fromIterable(repository.saveAll(entities)));
+    }
+
+    @Override
+    public Flux<ReviewRow> findByProductId(int productId, int pageSize, int cursor) {
+        return async(Flux.defer(() -> Flux.fromIterable((pageSize == 0 && cursor == 0) ?
+                repository.findReviewsByProductId(productId) :
+                repository.findReviewsByProductIdAfter(productId, cursor, pageSize == 0 ? Pageable.unpaged() : PageRequest.of(0, pageSize)))));
+    }
+
+    @Override
+    public Flux<ReviewRow> findByProductIdIn(Collection<Integer> productIds) {
+        return stream(() -> entityManager.createQuery(ReviewRepository.SELECT_REVIEWS + "where r.productId in :productIds", ReviewRow.class)
+                .setParameter("productIds", productIds)
+                .setHint(HINT_FETCH_SIZE, fetchSize)
+                .getResultStream());
+    }
+
+    @Override
+    public Mono<Integer> deleteByProductId(int productId) {
+        return Mono.fromCallable(() -> repository.deleteByProductId(productId));
+    }
+
+    /**
+     * Emits the rows as they are fetched, as fast as the subscriber asks for them: the jdbc thread waits for demand
+     * instead of reading ahead. The connection is held until the last row is read or the subscriber cancels.
+     */
+    private Flux<ReviewRow> stream(Supplier<Stream<ReviewRow>> query) {
+        return async(Flux.create(sink -> {
+            Object demand = new Object();
+            sink.onRequest(n -> signal(demand));
+            sink.onCancel(() -> signal(demand));
+
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<ReviewRow> reviews = query.get()) {
+                    Iterator<ReviewRow> rows = reviews.iterator();
+                    while (awaitDemand(sink, demand) && rows.hasNext()) sink.next(rows.next());
+                }
+            });
+            sink.complete();
+        }));
+    }
+
+    /**
+     * @return false if the subscriber has cancelled
+     */
+    private static boolean awaitDemand(FluxSink<?> sink, Object demand) {
+        synchronized (demand) {
+            try {
+                while (sink.requestedFromDownstream() == 0 && !sink.isCancelled()) demand.wait();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while streaming reviews", e);
+            }
+        }
+        return !sink.isCancelled();
+    }
+
+    private static void signal(Object demand) {
+        synchronized (demand) {
+            demand.notifyAll();
+        }
+    }
+
+    private Flux<ReviewRow> async(Flux<ReviewRow> query) {
+        // The deadline is checked once a jdbc thread has picked up the work, so that work queued for too long is refused.
+        // Requests of the subscriber are not scheduled on the jdbc scheduler, its thread may be busy waiting for them.
+        return RequestDeadline.check().thenMany(query).subscribeOn(scheduler, false)
+                .onErrorMap(RejectedExecutionException.class, e -> new ServiceOverloadedException("The review service is overloaded, try again later"));
+    }
+}
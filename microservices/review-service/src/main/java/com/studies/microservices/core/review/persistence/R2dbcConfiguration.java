@@ -0,0 +1,61 @@
+package com.studies.microservices.core.review.persistence;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+/**
+ * The R2DBC connection pool of the {@code r2dbc} profile.
+ * <p>
+ * Declared here rather than left to the R2DBC auto-configuration, which is excluded in the application. Otherwise a
+ * connection factory, and a second transaction manager next to the JPA one, would be created whenever an R2DBC driver
+ * is on the classpath.
+ */
+@Configuration
+@Profile("r2dbc")
+public class R2dbcConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(R2dbcConfiguration.class);
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(
+            @Value("${spring.r2dbc.url}") String url,
+            @Value("${spring.r2dbc.username:}") String username,
+            @Value("${spring.r2dbc.password:}") String password,
+            @Value("${spring.r2dbc.pool.max-size:10}") int maxSize) {
+
+        LOG.info("Creates an R2DBC connection pool for {}, maxSize: {}", url, maxSize);
+
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) options.option(USER, username);
+        if (!password.isEmpty()) options.option(PASSWORD, password);
+
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean
+    public ReactiveTransactionManager reactiveTransactionManager(ConnectionFactory connectionFactory) {
+        return new R2dbcTransactionManager(connectionFactory);
+    }
+
+    @Bean
+    public TransactionalOperator transactionalOperator(ReactiveTransactionManager transactionManager) {
+        return TransactionalOperator.create(transactionManager);
+    }
+}
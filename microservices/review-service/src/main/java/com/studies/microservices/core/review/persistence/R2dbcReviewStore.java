@@ -0,0 +1,125 @@
+package com.studies.microservices.core.review.persistence;
+
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.studies.util.http.RequestDeadline;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The non-blocking R2DBC implementation of the {@link ReviewStore}, used with the {@code r2dbc} profile.
+ * <p>
+ * Works on the same schema as the JPA entities, including the table Hibernate takes their ids from, so a database can
+ * be switched between the two modes. The schema is not created, start the service once without the profile or create
+ * it beforehand.
+ */
+@Component
+@Profile("r2dbc")
+public class R2dbcReviewStore implements ReviewStore {
+
+    private static final int MAX_ID_ALLOCATION_ATTEMPTS = 10;
+
+    private static final String SELECT_REVIEWS = "select product_id, review_id, author, subject, content, version from reviews ";
+
+    private final DatabaseClient client;
+
+    private final TransactionalOperator transactions;
+
+    @Autowired
+    public R2dbcReviewStore(DatabaseClient client, TransactionalOperator transactions) {
+        this.client = client;
+        this.transactions = transactions;
+    }
+
+    @Override
+    public Mono<ReviewEntity> create(ReviewEntity entity) {
+        return allocateIds(1).flatMap(id -> insert(entity, id));
+    }
+
+    @Override
+    public Flux<ReviewEntity> createAll(List<ReviewEntity> entities) {
+        if (entities.isEmpty()) return Flux.empty();
+
+        // The ids are allocated outside of the transaction, so the id table isn't locked while the reviews are inserted
+        return allocateIds(entities.size()).flatMapMany(firstId -> Flux.range(0, entities.size())
+                .concatMap(i -> insert(entities.get(i), firstId + i))
+                .as(transactions::transactional));
+    }
+
+    @Override
+    public Flux<ReviewRow> findByProductId(int productId, int pageSize, int cursor) {
+
+        if (pageSize == 0 && cursor == 0) {
+            return query(client.execute(SELECT_REVIEWS + "where product_id = :productId order by review_id")
+                    .bind("productId", productId));
+        }
+
+        // Keyset pagination, served by the unique (product_id, review_id) index
+        DatabaseClient.GenericExecuteSpec spec = client.execute(SELECT_REVIEWS + "where product_id = :productId and review_id > :cursor order by review_id" + (pageSize > 0 ? " limit :pageSize" : ""))
+                .bind("productId", productId)
+                .bind("cursor", cursor);
+
+        return query(pageSize > 0 ? spec.bind("pageSize", pageSize) : spec);
+    }
+
+    @Override
+    public Flux<ReviewRow> findByProductIdIn(Collection<Integer> productIds) {
+        return query(client.execute(SELECT_REVIEWS + "where product_id in (:productIds)")
+                .bind("productIds", productIds));
+    }
+
+    @Override
+    public Mono<Integer> deleteByProductId(int productId) {
+        return client.execute("delete from reviews where product_id = :productId")
+                .bind("productId", productId)
+                .fetch().rowsUpdated();
+    }
+
+    private Flux<ReviewRow> query(DatabaseClient.GenericExecuteSpec spec) {
+        return RequestDeadline.check().thenMany(spec.map((row, metadata) -> toReviewRow(row)).all());
+    }
+
+    private static ReviewRow toReviewRow(Row row) {
+        return new ReviewRow(
+                row.get("product_id", Integer.class),
+                row.get("review_id", Integer.class),
+                row.get("author", String.class),
+                row.get("subject", String.class),
+                row.get("content", String.class),
+                row.get("version", Integer.class));
+    }
+
+    private Mono<ReviewEntity> insert(ReviewEntity entity, int id) {
+        entity.setId(id);
+        entity.setVersion(0);
+
+        return client.insert().into(ReviewEntity.class).table("reviews").using(entity).then().thenReturn(entity);
+    }
+
+    /**
+     * Allocates a range of ids the way Hibernate does for the JPA entities: reads the next value from its id table and
+     * moves it forward with an update that only succeeds if no one else has moved it in the meantime.
+     *
+     * @return the first id of the range
+     */
+    private Mono<Integer> allocateIds(int count) {
+        return client.execute("select next_val from hibernate_sequence")
+                .map((row, metadata) -> row.get("next_val", Long.class))
+                .one()
+                .flatMap(nextValue -> client.execute("update hibernate_sequence set next_val = :newValue where next_val = :oldValue")
+                        .bind("newValue", nextValue + count)
+                        .bind("oldValue", nextValue)
+                        .fetch().rowsUpdated()
+                        .filter(updated -> updated == 1)
+                        .map(updated -> nextValue.intValue()))
+                .repeatWhenEmpty(MAX_ID_ALLOCATION_ATTEMPTS, attempts -> attempts)
+                .switchIfEmpty(Mono.error(new IllegalStateException("Failed to allocate " + count + " review ids")));
+    }
+}
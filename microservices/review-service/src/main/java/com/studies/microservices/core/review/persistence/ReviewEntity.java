@@ -1,5 +1,8 @@
 package com.studies.microservices.core.review.persistence;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 
 import static java.lang.String.format;
@@ -8,8 +11,16 @@ import static java.lang.String.format;
 @Table(name = "reviews", indexes = { @Index(name = "reviews_unique_idx", unique = true, columnList = "productId, reviewId") })
 public class ReviewEntity {
 
+    // Pooled ids, so that new reviews can be inserted in JDBC batches. On MySQL the ids come from the hibernate_sequence
+    // table, like the ids of the former default generator. With the pooled-lo optimizer its next_val still is the next
+    // free id, it is just moved forward 50 ids at a time.
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "review_ids")
+    @GenericGenerator(name = "review_ids", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private int id;
 
     @Version
@@ -1,12 +1,41 @@
 package com.studies.microservices.core.review.persistence;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer> {
 
+    // The read path selects reviews straight into projections, see ReviewRow
+    String SELECT_REVIEWS = "select new com.studies.microservices.core.review.persistence.ReviewRow(r.productId, r.reviewId, r.author, r.subject, r.content, r.version) from ReviewEntity r ";
+
     @Transactional(readOnly = true)
     List<ReviewEntity> findByProductId(int productId);
+
+    // Keyset pagination, served by the unique (productId, reviewId) index
+    @Transactional(readOnly = true)
+    List<ReviewEntity> findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(int productId, int reviewId, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    List<ReviewEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_REVIEWS + "where r.productId = :productId order by r.reviewId")
+    List<ReviewRow> findReviewsByProductId(@Param("productId") int productId);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_REVIEWS + "where r.productId = :productId and r.reviewId > :cursor order by r.reviewId")
+    List<ReviewRow> findReviewsByProductIdAfter(@Param("productId") int productId, @Param("cursor") int cursor, Pageable pageable);
+
+    // A single bulk DELETE, a derived deleteBy query would load every entity and delete them one by one
+    @Modifying
+    @Transactional
+    @Query("delete from ReviewEntity r where r.productId = :productId")
+    int deleteByProductId(@Param("productId") int productId);
 }
@@ -0,0 +1,56 @@
+package com.studies.microservices.core.review.persistence;
+
+import static java.lang.String.format;
+
+/**
+ * A review as it is read from the database, selected straight into this projection instead of an entity, so that no
+ * entities are hydrated, snapshotted for dirty checking or kept in the persistence context. Mapped to the API object,
+ * with the service address, by the service layer.
+ */
+public class ReviewRow {
+
+    private final int productId;
+    private final int reviewId;
+    private final String author;
+    private final String subject;
+    private final String content;
+    private final int version;
+
+    public ReviewRow(int productId, int reviewId, String author, String subject, String content, int version) {
+        this.productId = productId;
+        this.reviewId = reviewId;
+        this.author = author;
+        this.subject = subject;
+        this.content = content;
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return format("ReviewRow: %s/%d", productId, reviewId);
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public int getReviewId() {
+        return reviewId;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
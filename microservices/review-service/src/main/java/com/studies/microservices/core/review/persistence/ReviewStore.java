@@ -0,0 +1,35 @@
+package com.studies.microservices.core.review.persistence;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes review entities and reads reviews straight into {@link ReviewRow} projections, with JPA over JDBC by default,
+ * see {@link JpaReviewStore}, or with R2DBC if the {@code r2dbc} profile is active, see {@link R2dbcReviewStore}.
+ */
+public interface ReviewStore {
+
+    Mono<ReviewEntity> create(ReviewEntity entity);
+
+    /**
+     * Creates all the reviews in one transaction, all of them are created or none of them.
+     */
+    Flux<ReviewEntity> createAll(List<ReviewEntity> entities);
+
+    /**
+     * @param pageSize the max number of reviews to return, all if 0
+     * @param cursor only reviews with a higher reviewId are returned
+     * @return the reviews of the product, ordered by reviewId
+     */
+    Flux<ReviewRow> findByProductId(int productId, int pageSize, int cursor);
+
+    Flux<ReviewRow> findByProductIdIn(Collection<Integer> productIds);
+
+    /**
+     * @return the number of deleted reviews
+     */
+    Mono<Integer> deleteByProductId(int productId);
+}
@@ -2,25 +2,49 @@ package com.studies.microservices.core.review.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.cloud.stream.messaging.Sink;
 import com.studies.api.core.review.Review;
-import com.studies.api.core.review.ReviewResource;
 import com.studies.api.event.Event;
 import com.studies.util.exceptions.EventProcessingException;
+import com.studies.util.messaging.EventBatcher;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 
 @EnableBinding(Sink.class)
 public class MessageProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(MessageProcessor.class);
 
-    private final ReviewResource reviewResource;
+    private final ReviewResourceImpl reviewResource;
+
+    // Only used in the bulk-consume mode, i.e. with a batch size above 1
+    private final EventBatcher<Review> batcher;
 
     @Autowired
-    public MessageProcessor(ReviewResource reviewResource) {
+    public MessageProcessor(
+            ReviewResourceImpl reviewResource,
+            MeterRegistry registry,
+            @Value("${app.messaging.batchSize:1}") int batchSize,
+            @Value("${app.messaging.lingerMs:50}") int lingerMs) {
+        LOG.info("Creates a message processor, batchSize: {}, lingerMs: {}", batchSize, lingerMs);
+
         this.reviewResource = reviewResource;
+        this.batcher = batchSize > 1 ? new EventBatcher<>(batchSize, Duration.ofMillis(lingerMs), this::createReviewsInOneTransaction) : null;
+
+        if (batcher != null) {
+            registry.gauge("review.messaging.batch-pending", batcher, EventBatcher::getPending);
+            FunctionCounter.builder("review.messaging.batch-fallbacks", batcher, EventBatcher::getFallbacks).register(registry);
+        }
     }
 
     @StreamListener(target = Sink.INPUT)
@@ -33,21 +57,47 @@ public class MessageProcessor {
         case CREATE:
             Review review = event.getData();
             LOG.info("Create review with ID: {}/{}", review.getProductId(), review.getReviewId());
-            reviewResource.createReview(review);
+            if (batcher != null) createReviewsInBatch(singletonList(review)); else reviewResource.createReview(review).block();
+            break;
+
+        case CREATE_BATCH:
+            List<Review> reviews = event.getBatch();
+            LOG.info("Create {} reviews with ProductID: {}", reviews.size(), event.getKey());
+            if (batcher != null) createReviewsInBatch(reviews); else reviewResource.createReviews(reviews).then().block();
             break;
 
         case DELETE:
             int productId = event.getKey();
             LOG.info("Delete reviews with ProductID: {}", productId);
-            reviewResource.deleteReviews(productId);
+            // Creates of reviews of the product that are still waiting in a batch, on other consumer threads, are written first
+            if (batcher != null) batcher.flush();
+            reviewResource.deleteReviews(productId).block();
             break;
 
         default:
-            String errorMessage = "Incorrect event type: " + event.getEventType() + ", expected a CREATE or DELETE event";
+            String errorMessage = "Incorrect event type: " + event.getEventType() + ", expected a CREATE, CREATE_BATCH or DELETE event";
             LOG.warn(errorMessage);
             throw new EventProcessingException(errorMessage);
         }
 
         LOG.info("Message processing done!");
     }
+
+    /**
+     * Creates the reviews together with the reviews of the events consumed on other threads at the same time. Reviews
+     * the batch failed to create are created one at a time, so that an event that still fails is retried and
+     * dead-lettered by the binder.
+     */
+    private void createReviewsInBatch(List<Review> reviews) {
+        batcher.write(reviews, review -> reviewResource.createReview(review).block());
+    }
+
+    /**
+     * All reviews of the batch are created in one transaction, with JDBC batches, or none of them, e.g. if one of them
+     * is a duplicate.
+     */
+    private List<Review> createReviewsInOneTransaction(List<Review> reviews) {
+        reviewResource.createReviews(reviews).then().block();
+        return emptyList();
+    }
 }
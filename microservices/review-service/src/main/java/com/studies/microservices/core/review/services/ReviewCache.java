@@ -0,0 +1,79 @@
+package com.studies.microservices.core.review.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.studies.microservices.core.review.persistence.ReviewRow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.studies.util.http.RequestDeadline;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded, in-process cache of all reviews of a product, keyed by productId.
+ * <p>
+ * Entries are evicted by {@link ReviewResourceImpl} once this instance has written reviews of the product. Loads are
+ * cached as futures, so an eviction that comes while the reviews are being loaded also drops the load, and its
+ * possibly stale result isn't cached. Writes made by other instances are only seen once the cached reviews have
+ * expired, after at most {@code ttlSeconds}.
+ * <p>
+ * Hits, misses and evictions are exposed as the Micrometer "cache.*" metrics, tagged with cache=reviews.
+ */
+@Component
+public class ReviewCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReviewCache.class);
+
+    private final boolean enabled;
+    private final AsyncCache<Integer, List<ReviewRow>> cache;
+
+    @Autowired
+    public ReviewCache(
+            MeterRegistry registry,
+            @Value("${app.review-cache.enabled:true}") boolean enabled,
+            @Value("${app.review-cache.maxSize:10000}") long maxSize,
+            @Value("${app.review-cache.ttlSeconds:60}") int ttlSeconds
+    ) {
+        LOG.info("Creates a review cache, enabled: {}, maxSize: {}, ttlSeconds: {}", enabled, maxSize, ttlSeconds);
+
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "reviews");
+    }
+
+    /**
+     * Returns the cached reviews of the product, or subscribes to the loader and caches the reviews it emits. Failed
+     * loads are never cached.
+     */
+    public Flux<ReviewRow> get(int productId, Supplier<Flux<ReviewRow>> loader) {
+
+        if (!enabled) return Flux.defer(loader);
+
+        // The load is shared by all concurrent reads of the product, so it runs without the deadline of the first one,
+        // each read only waits for it as long as its own deadline allows
+        return RequestDeadline.timeout(Mono.defer(() -> Mono.fromFuture(cache.get(productId, (key, executor) -> loader.get().collectList().toFuture()))))
+                .flatMapIterable(rows -> rows);
+    }
+
+    public void evict(int productId) {
+        LOG.debug("Evicts the cached reviews for productId: {}", productId);
+        cache.synchronous().invalidate(productId);
+    }
+
+    public void evictAll() {
+        cache.synchronous().invalidateAll();
+    }
+}
@@ -5,6 +5,7 @@ import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 import com.studies.api.core.review.Review;
 import com.studies.microservices.core.review.persistence.ReviewEntity;
+import com.studies.microservices.core.review.persistence.ReviewRow;
 
 import java.util.List;
 
@@ -16,6 +17,11 @@ public interface ReviewMapper {
     })
     Review entityToApi(ReviewEntity entity);
 
+    @Mappings({
+        @Mapping(target = "serviceAddress", ignore = true)
+    })
+    Review rowToApi(ReviewRow row);
+
     @Mappings({
         @Mapping(target = "id", ignore = true),
         @Mapping(target = "version", ignore = true)
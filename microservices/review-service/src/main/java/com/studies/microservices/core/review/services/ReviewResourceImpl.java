@@ -1,92 +1,139 @@
 package com.studies.microservices.core.review.services;
 
-import com.studies.microservices.core.review.persistence.ReviewRepository;
-import org.reactivestreams.Publisher;
+import com.studies.microservices.core.review.persistence.ReviewStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Scheduler;
+import reactor.core.publisher.Mono;
 import com.studies.api.core.review.Review;
 import com.studies.api.core.review.ReviewResource;
-import com.studies.microservices.core.review.persistence.ReviewEntity;
+import com.studies.microservices.core.review.persistence.ReviewRow;
 import com.studies.util.exceptions.InvalidInputException;
+import com.studies.util.http.ETags;
 import com.studies.util.http.ServiceUtil;
 
 import java.util.List;
-import java.util.function.Supplier;
 
 import static java.util.logging.Level.FINE;
+import static java.util.stream.Collectors.toList;
 
 @RestController
 public class ReviewResourceImpl implements ReviewResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReviewResourceImpl.class);
 
-    private final ReviewRepository repository;
+    private final ReviewStore store;
+
+    private final ReviewCache cache;
 
     private final ReviewMapper mapper;
 
     private final ServiceUtil serviceUtil;
 
-    private final Scheduler scheduler;
+    private final int maxBatchIds;
 
     @Autowired
-    public ReviewResourceImpl(Scheduler scheduler, ReviewRepository repository, ReviewMapper mapper, ServiceUtil serviceUtil) {
-        this.scheduler = scheduler;
-        this.repository = repository;
+    public ReviewResourceImpl(
+            ReviewStore store,
+            ReviewCache cache,
+            ReviewMapper mapper,
+            ServiceUtil serviceUtil,
+            @Value("${app.batch.maxIds:100}") int maxBatchIds) {
+        this.store = store;
+        this.cache = cache;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
+        this.maxBatchIds = maxBatchIds;
     }
 
     @Override
-    public Review createReview(Review body) {
+    public Mono<Review> createReview(Review body) {
 
         if (body.getProductId() < 1) throw new InvalidInputException("Invalid productId: " + body.getProductId());
 
-        try {
-            ReviewEntity entity = mapper.apiToEntity(body);
-            ReviewEntity newEntity = repository.save(entity);
-
-            LOG.debug("createReview: created a review entity: {}/{}", body.getProductId(), body.getReviewId());
-            return mapper.entityToApi(newEntity);
+        return store.create(mapper.apiToEntity(body))
+                .onErrorMap(
+                        DataIntegrityViolationException.class,
+                        ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId()))
+                .doOnNext(e -> LOG.debug("createReview: created a review entity: {}/{}", e.getProductId(), e.getReviewId()))
+                .doOnSuccess(e -> cache.evict(body.getProductId()))
+                .map(e -> mapper.entityToApi(e));
+    }
 
-        } catch (DataIntegrityViolationException dive) {
-            throw new InvalidInputException("Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId());
-        }
+    public Flux<Review> createReviews(List<Review> body) {
+
+        body.forEach(review -> {
+            if (review.getProductId() < 1) throw new InvalidInputException("Invalid productId: " + review.getProductId());
+        });
+
+        // All reviews are created in one transaction, or none of them
+        return store.createAll(mapper.apiListToEntityList(body))
+                .onErrorMap(
+                        DataIntegrityViolationException.class,
+                        ex -> new InvalidInputException("Duplicate key in a batch of " + body.size() + " reviews"))
+                .map(e -> mapper.entityToApi(e))
+                .doOnComplete(() -> {
+                    LOG.debug("createReviews: created {} review entities", body.size());
+                    body.stream().map(Review::getProductId).distinct().forEach(cache::evict);
+                });
     }
 
     @Override
-    public Flux<Review> getReviews(int productId) {
+    public Flux<Review> getReviews(int productId, int pageSize, int cursor) {
 
         if (productId < 1) throw new InvalidInputException("Invalid productId: " + productId);
+        if (pageSize < 0) throw new InvalidInputException("Invalid pageSize: " + pageSize);
+        if (cursor < 0) throw new InvalidInputException("Invalid cursor: " + cursor);
 
         LOG.info("Will get reviews for product with id={}", productId);
 
-        return asyncFlux(() -> Flux.fromIterable(getByProductId(productId)))
+        // All reviews of a product are cached, ordered by reviewId, pages are taken from them as the store would read them
+        Flux<ReviewRow> rows = cache.get(productId, () -> store.findByProductId(productId, 0, 0))
+                .filter(row -> row.getReviewId() > cursor);
+        if (pageSize > 0) rows = rows.take(pageSize);
+
+        Flux<Review> reviews = withServiceAddress(rows)
                 .log(null, FINE);
+
+        // Only pages get an ETag, it is computed from all entities of the response, which are buffered for it
+        if (pageSize == 0) return reviews;
+
+        return ETags.checkNotModified(reviews, list -> ETags.hash(list.stream()
+                .map(r -> r.getReviewId() + "-" + r.getVersion())
+                .collect(toList())));
     }
 
-    protected List<Review> getByProductId(int productId) {
+    @Override
+    public Flux<Review> getReviewsForProducts(List<Integer> productIds) {
 
-        List<ReviewEntity> entityList = repository.findByProductId(productId);
-        List<Review> list = mapper.entityListToApiList(entityList);
-        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+        // Duplicate ids are dropped before the ids are counted against the limit
+        List<Integer> distinctProductIds = productIds.stream().distinct().collect(toList());
+        if (distinctProductIds.size() > maxBatchIds) throw new InvalidInputException("Too many productIds: " + distinctProductIds.size() + ", at most " + maxBatchIds + " are allowed");
+        distinctProductIds.forEach(productId -> {
+            if (productId < 1) throw new InvalidInputException("Invalid productId: " + productId);
+        });
 
-        LOG.debug("getReviews: response size: {}", list.size());
+        LOG.info("Will get reviews for {} products", distinctProductIds.size());
 
-        return list;
+        // All reviews are read with a single IN query
+        return withServiceAddress(store.findByProductIdIn(distinctProductIds))
+                .log(null, FINE);
     }
 
-    @Override
-    public void deleteReviews(int productId) {
-        LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
-        repository.deleteAll(repository.findByProductId(productId));
+    private Flux<Review> withServiceAddress(Flux<ReviewRow> rows) {
+        return rows.map(row -> mapper.rowToApi(row)).map(r -> { r.setServiceAddress(serviceUtil.getServiceAddress()); return r; });
     }
 
-    private <T> Flux<T> asyncFlux(Supplier<Publisher<T>> publisherSupplier) {
-        return Flux.defer(publisherSupplier).subscribeOn(scheduler);
+    @Override
+    public Mono<Void> deleteReviews(int productId) {
+        LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
+        return store.deleteByProductId(productId)
+                .doOnNext(count -> LOG.debug("deleteReviews: deleted {} reviews for the product with productId: {}", count, productId))
+                .doOnSuccess(count -> cache.evict(productId))
+                .then();
     }
 }
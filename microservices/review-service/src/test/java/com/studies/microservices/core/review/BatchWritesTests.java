@@ -0,0 +1,101 @@
+package com.studies.microservices.core.review;
+
+import com.studies.microservices.core.review.persistence.ReviewRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.test.context.junit4.SpringRunner;
+import com.studies.api.core.review.Review;
+import com.studies.api.event.Event;
+import com.studies.util.messaging.ConcurrentConsumers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static com.studies.api.event.Event.Type.CREATE;
+import static com.studies.api.event.Event.Type.DELETE;
+import static com.studies.util.messaging.ConcurrentConsumers.awaitUntil;
+import static com.studies.util.messaging.ConcurrentConsumers.countFailed;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:review-batch-db",
+        "app.messaging.batchSize=5",
+        "app.messaging.lingerMs=1000"})
+public class BatchWritesTests {
+
+    @Autowired
+    private ReviewRepository repository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private Sink channels;
+
+    private ConcurrentConsumers consumers;
+
+    @Before
+    public void setupDb() {
+        repository.deleteAll();
+        consumers = new ConcurrentConsumers(channels.input(), 5);
+    }
+
+    @After
+    public void stopConsumers() {
+        consumers.close();
+    }
+
+    @Test
+    public void createsReviewsOfConcurrentEvents() throws InterruptedException {
+
+        List<Future<Void>> sends = consumers.sendAll(IntStream.rangeClosed(1, 5)
+                .mapToObj(reviewId -> createReviewEvent(1, reviewId))
+                .collect(Collectors.toList()));
+
+        assertEquals(0, countFailed(sends));
+        assertEquals(5, repository.findByProductId(1).size());
+    }
+
+    @Test
+    public void writesReviewsOfAFailedBatchOneAtATime() throws Exception {
+
+        consumers.sendNow(createReviewEvent(1, 1));
+
+        // A batch with a duplicate of the first review, only the event of the duplicate fails
+        List<Future<Void>> sends = consumers.sendAll(IntStream.rangeClosed(1, 5)
+                .mapToObj(reviewId -> createReviewEvent(1, reviewId))
+                .collect(Collectors.toList()));
+
+        assertEquals(1, countFailed(sends));
+        assertEquals(5, repository.findByProductId(1).size());
+    }
+
+    @Test
+    public void deleteIsWrittenAfterTheCreateOfAnotherThread() throws Exception {
+
+        // The create waits in the batch for the linger, until the delete of the same product comes on another thread
+        Future<Void> create = consumers.send(createReviewEvent(1, 1));
+        awaitUntil(() -> registry.get("review.messaging.batch-pending").gauge().value() == 1, Duration.ofSeconds(5));
+
+        consumers.sendNow(new Event(DELETE, 1, null));
+        create.get();
+
+        assertEquals(0, repository.findByProductId(1).size());
+    }
+
+    private Event<Integer, Review> createReviewEvent(int productId, int reviewId) {
+        Review review = new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId, "Content " + reviewId, "SA");
+        return new Event(CREATE, productId, review);
+    }
+}
@@ -0,0 +1,73 @@
+package com.studies.microservices.core.review;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+
+public class JdbcSchedulerTests {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private Scheduler scheduler;
+
+    @Before
+    public void setupScheduler() {
+        // One thread and room for one more queued task
+        scheduler = Schedulers.fromExecutorService(new BoundedJdbcExecutor(Executors.newFixedThreadPool(1), 2, registry), "jdbc");
+    }
+
+    @After
+    public void disposeScheduler() {
+        release.countDown();
+        scheduler.dispose();
+    }
+
+    @Test
+    public void rejectsTasksBeyondTheQueueCapacity() throws InterruptedException {
+
+        CountDownLatch started = new CountDownLatch(1);
+        Mono.fromRunnable(() -> {
+            started.countDown();
+            await(release);
+        }).subscribeOn(scheduler).subscribe();
+        started.await();
+
+        Mono<String> queued = Mono.fromCallable(() -> "queued").subscribeOn(scheduler);
+        queued.subscribe();
+
+        StepVerifier.create(Mono.fromCallable(() -> "rejected").subscribeOn(scheduler))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+
+        assertEquals(1.0, registry.get("review.jdbc-scheduler.active").gauge().value(), 0);
+        assertEquals(1.0, registry.get("review.jdbc-scheduler.queued").gauge().value(), 0);
+        assertEquals(1.0, registry.get("review.jdbc-scheduler.rejections").counter().count(), 0);
+
+        release.countDown();
+
+        StepVerifier.create(queued).expectNext("queued").verifyComplete();
+        assertEquals(3, registry.get("review.jdbc-scheduler.wait").timer().count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
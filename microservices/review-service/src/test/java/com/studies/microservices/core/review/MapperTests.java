@@ -5,6 +5,7 @@ import org.junit.Test;
 import org.mapstruct.factory.Mappers;
 import com.studies.api.core.review.Review;
 import com.studies.microservices.core.review.persistence.ReviewEntity;
+import com.studies.microservices.core.review.persistence.ReviewRow;
 
 import java.util.Collections;
 import java.util.List;
@@ -41,6 +42,22 @@ public class MapperTests {
         assertNull(api2.getServiceAddress());
     }
 
+    @Test
+    public void rowMapperTests() {
+
+        ReviewRow row = new ReviewRow(1, 2, "a", "s", "C", 3);
+
+        Review api = mapper.rowToApi(row);
+
+        assertEquals(row.getProductId(), api.getProductId());
+        assertEquals(row.getReviewId(), api.getReviewId());
+        assertEquals(row.getAuthor(), api.getAuthor());
+        assertEquals(row.getSubject(), api.getSubject());
+        assertEquals(row.getContent(), api.getContent());
+        assertEquals(row.getVersion(), api.getVersion());
+        assertNull(api.getServiceAddress());
+    }
+
     @Test
     public void mapperListTests() {
 
@@ -0,0 +1,141 @@
+package com.studies.microservices.core.review;
+
+import com.studies.microservices.core.review.persistence.JpaReviewStore;
+import com.studies.microservices.core.review.persistence.R2dbcReviewStore;
+import com.studies.microservices.core.review.persistence.ReviewEntity;
+import com.studies.microservices.core.review.persistence.ReviewRepository;
+import com.studies.microservices.core.review.persistence.ReviewStore;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+import static org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED;
+
+/**
+ * Compares the throughput of concurrent reads through the JPA store on the jdbc scheduler with the R2DBC store, both
+ * on an embedded H2 database behind a pool of the same size.
+ * <p>
+ * Only runs if asked for: ./gradlew :microservices:review-service:test --tests '*PersistenceBenchmarkTests' -Dbenchmark=true
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:review-benchmark",
+        "spring.datasource.hikari.maximum-pool-size=" + PersistenceBenchmarkTests.POOL_SIZE,
+        "spring.jpa.show-sql=false"})
+@AutoConfigureTestDatabase(replace = NONE)
+@Transactional(propagation = NOT_SUPPORTED)
+public class PersistenceBenchmarkTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistenceBenchmarkTests.class);
+
+    static final int POOL_SIZE = 10;
+
+    private static final int PRODUCTS = 100;
+    private static final int REVIEWS_PER_PRODUCT = 20;
+    private static final int READS = 5000;
+    private static final int CONCURRENCY = 64;
+
+    @Autowired
+    private ReviewRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeClass
+    public static void onlyIfAskedFor() {
+        assumeTrue("Run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void compareReads() {
+
+        Scheduler jdbcScheduler = Schedulers.fromExecutor(Executors.newFixedThreadPool(POOL_SIZE));
+        ReviewStore jdbcStore = new JpaReviewStore(repository, entityManager, transactionManager, jdbcScheduler, 500);
+
+        ConnectionPool connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(H2ConnectionFactory.inMemory("review-benchmark-r2dbc"))
+                .maxSize(POOL_SIZE)
+                .build());
+        DatabaseClient client = DatabaseClient.create(connectionPool);
+        R2dbcPersistenceTests.createSchema(client);
+        ReviewStore r2dbcStore = new R2dbcReviewStore(client, TransactionalOperator.create(new R2dbcTransactionManager(connectionPool)));
+
+        try {
+            repository.deleteAll();
+            seed(jdbcStore);
+            seed(r2dbcStore);
+
+            measure("JDBC", jdbcStore);
+            measure("R2DBC", r2dbcStore);
+
+        } finally {
+            jdbcScheduler.dispose();
+            connectionPool.dispose();
+        }
+    }
+
+    private void seed(ReviewStore store) {
+        Flux.range(1, PRODUCTS)
+                .concatMap(productId -> store.createAll(IntStream.rangeClosed(1, REVIEWS_PER_PRODUCT)
+                        .mapToObj(reviewId -> new ReviewEntity(productId, reviewId, "author", "subject", "content"))
+                        .collect(Collectors.toList())))
+                .blockLast();
+    }
+
+    private void measure(String name, ReviewStore store) {
+
+        // Warm up
+        read(store, READS / 10);
+
+        long start = System.nanoTime();
+        List<Long> latenciesNanos = read(store, READS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        List<Long> sorted = latenciesNanos.stream().sorted().collect(Collectors.toList());
+        LOG.info("{}: {} reads with {} in flight on {} connections in {} ms, {} reads/s, median {} ms, p99 {} ms",
+                name, READS, CONCURRENCY, POOL_SIZE, elapsedMs, READS * 1000L / Math.max(1, elapsedMs),
+                TimeUnit.NANOSECONDS.toMillis(sorted.get(sorted.size() / 2)),
+                TimeUnit.NANOSECONDS.toMillis(sorted.get(sorted.size() * 99 / 100)));
+    }
+
+    private List<Long> read(ReviewStore store, int count) {
+        return Flux.range(0, count)
+                .flatMap(i -> {
+                    long start = System.nanoTime();
+                    return store.findByProductId(1 + i % PRODUCTS, 0, 0).count()
+                            .doOnNext(reviews -> assertEquals(REVIEWS_PER_PRODUCT, (long) reviews))
+                            .map(reviews -> System.nanoTime() - start);
+                }, CONCURRENCY)
+                .collectList()
+                .block();
+    }
+}
@@ -1,19 +1,35 @@
 package com.studies.microservices.core.review;
 
+import com.studies.microservices.core.review.persistence.JpaReviewStore;
 import com.studies.microservices.core.review.persistence.ReviewRepository;
+import com.studies.microservices.core.review.persistence.ReviewRow;
+import com.studies.microservices.core.review.persistence.ReviewStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
 import com.studies.microservices.core.review.persistence.ReviewEntity;
 
+import javax.persistence.EntityManager;
+import java.time.Duration;
 import java.util.List;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.*;
 import static org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED;
@@ -26,10 +42,32 @@ public class PersistenceTests {
     @Autowired
     private ReviewRepository repository;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Scheduler jdbcScheduler = Schedulers.newSingle("jdbc");
+
+    // The jdbcScheduler of the application is instrumented, the metrics aren't auto-configured in a JPA test
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    private ReviewStore store;
+
     private ReviewEntity savedEntity;
 
     @Before
    	public void setupDb() {
+        store = new JpaReviewStore(repository, entityManager, transactionManager, jdbcScheduler, 2);
+
    		repository.deleteAll();
 
         ReviewEntity entity = new ReviewEntity(1, 2, "a", "s", "c");
@@ -38,6 +76,11 @@ public class PersistenceTests {
         assertEqualsReview(entity, savedEntity);
     }
 
+    @After
+    public void disposeScheduler() {
+        jdbcScheduler.dispose();
+    }
+
 
     @Test
    	public void create() {
@@ -67,6 +110,15 @@ public class PersistenceTests {
         assertFalse(repository.existsById(savedEntity.getId()));
     }
 
+    @Test
+   	public void deleteByProductId() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+
+        assertEquals(2, repository.deleteByProductId(1));
+        assertEquals(1, repository.count());
+    }
+
     @Test
    	public void getByProductId() {
         List<ReviewEntity> entityList = repository.findByProductId(savedEntity.getProductId());
@@ -75,6 +127,65 @@ public class PersistenceTests {
         assertEqualsReview(savedEntity, entityList.get(0));
     }
 
+    @Test
+   	public void getByProductIds() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+        repository.save(new ReviewEntity(3, 1, "a", "s", "c"));
+
+        List<ReviewEntity> entityList = repository.findByProductIdIn(asList(1, 2, 4));
+
+        assertThat(entityList, hasSize(3));
+    }
+
+    @Test
+   	public void getReviewsByProductId() {
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+
+        List<ReviewRow> reviewList = repository.findReviewsByProductId(savedEntity.getProductId());
+
+        assertThat(reviewList, hasSize(1));
+        assertEquals(savedEntity.getReviewId(), reviewList.get(0).getReviewId());
+        assertEquals(savedEntity.getAuthor(),   reviewList.get(0).getAuthor());
+        assertEquals(savedEntity.getVersion(),  reviewList.get(0).getVersion());
+    }
+
+    @Test
+   	public void streamReviewsByProductIds() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+        repository.save(new ReviewEntity(3, 1, "a", "s", "c"));
+
+        List<ReviewRow> reviewList = store.findByProductIdIn(asList(1, 2, 4)).collectList().block();
+
+        assertThat(reviewList, hasSize(3));
+    }
+
+    @Test
+   	public void streamOnlyAsManyReviewsAsRequested() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(1, 4, "a", "s", "c"));
+
+        StepVerifier.create(store.findByProductIdIn(asList(1)), 1)
+                .expectNextCount(1)
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenRequest(1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+   	public void getReviewsPageByProductId() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(1, 4, "a", "s", "c"));
+
+        List<ReviewRow> reviewList = repository.findReviewsByProductIdAfter(1, 2, PageRequest.of(0, 1));
+
+        assertThat(reviewList, hasSize(1));
+        assertEquals(3, reviewList.get(0).getReviewId());
+    }
+
     @Test(expected = DataIntegrityViolationException.class)
    	public void duplicateError() {
         ReviewEntity entity = new ReviewEntity(1, 2, "a", "s", "c");
@@ -0,0 +1,109 @@
+package com.studies.microservices.core.review;
+
+import com.studies.microservices.core.review.persistence.R2dbcReviewStore;
+import com.studies.microservices.core.review.persistence.ReviewEntity;
+import com.studies.microservices.core.review.persistence.ReviewRow;
+import com.studies.microservices.core.review.persistence.ReviewStore;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.*;
+
+public class R2dbcPersistenceTests {
+
+    private ReviewStore store;
+
+    private ReviewEntity savedEntity;
+
+    @Before
+   	public void setupDb() {
+        ConnectionFactory connectionFactory = H2ConnectionFactory.inMemory("r2dbc-persistence-tests");
+        DatabaseClient client = DatabaseClient.create(connectionFactory);
+        createSchema(client);
+
+        store = new R2dbcReviewStore(client, TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory)));
+
+        savedEntity = store.create(new ReviewEntity(1, 2, "a", "s", "c")).block();
+        assertEquals(1, savedEntity.getId());
+    }
+
+    /**
+     * The schema JPA creates for the review entities on MySQL, including the table Hibernate takes their ids from.
+     */
+    static void createSchema(DatabaseClient client) {
+        Flux.just(
+                "drop table if exists reviews",
+                "drop table if exists hibernate_sequence",
+                "create table reviews (id int not null primary key, version int not null, product_id int not null, review_id int not null, author varchar(255), subject varchar(255), content varchar(255))",
+                "create unique index reviews_unique_idx on reviews (product_id, review_id)",
+                "create table hibernate_sequence (next_val bigint)",
+                "insert into hibernate_sequence values (1)")
+                .concatMap(sql -> client.execute(sql).fetch().rowsUpdated())
+                .blockLast();
+    }
+
+    @Test
+   	public void create() {
+        ReviewEntity newEntity = store.create(new ReviewEntity(1, 3, "a", "s", "c")).block();
+
+        assertEquals(2, newEntity.getId());
+        assertThat(store.findByProductId(1, 0, 0).collectList().block(), hasSize(2));
+    }
+
+    @Test
+   	public void createAllInOneTransaction() {
+        StepVerifier.create(store.createAll(asList(new ReviewEntity(2, 1, "a", "s", "c"), new ReviewEntity(1, 2, "a", "s", "c"))))
+                .expectNextCount(1)
+                .expectError(DataIntegrityViolationException.class)
+                .verify();
+
+        assertThat(store.findByProductId(2, 0, 0).collectList().block(), hasSize(0));
+    }
+
+    @Test
+   	public void getByProductId() {
+        List<ReviewRow> reviewList = store.findByProductId(savedEntity.getProductId(), 0, 0).collectList().block();
+
+        assertThat(reviewList, hasSize(1));
+        assertEquals(savedEntity.getReviewId(), reviewList.get(0).getReviewId());
+        assertEquals(savedEntity.getAuthor(), reviewList.get(0).getAuthor());
+        assertEquals(savedEntity.getVersion(), reviewList.get(0).getVersion());
+    }
+
+    @Test
+   	public void getPageByProductId() {
+        store.createAll(asList(new ReviewEntity(1, 3, "a", "s", "c"), new ReviewEntity(1, 4, "a", "s", "c"), new ReviewEntity(1, 5, "a", "s", "c"))).blockLast();
+
+        StepVerifier.create(store.findByProductId(1, 2, 2).map(ReviewRow::getReviewId))
+                .expectNext(3, 4)
+                .verifyComplete();
+    }
+
+    @Test
+   	public void getByProductIds() {
+        store.create(new ReviewEntity(2, 1, "a", "s", "c")).block();
+        store.create(new ReviewEntity(3, 1, "a", "s", "c")).block();
+
+        assertThat(store.findByProductIdIn(asList(1, 2, 4)).collectList().block(), hasSize(2));
+    }
+
+    @Test
+   	public void deleteByProductId() {
+        store.create(new ReviewEntity(1, 3, "a", "s", "c")).block();
+
+        assertEquals(2, (int) store.deleteByProductId(1).block());
+        assertThat(store.findByProductId(1, 0, 0).collectList().block(), hasSize(0));
+    }
+}
@@ -0,0 +1,137 @@
+package com.studies.microservices.core.review;
+
+import com.studies.microservices.core.review.persistence.ReviewRepository;
+import com.studies.microservices.core.review.services.ReviewCache;
+import com.studies.microservices.core.review.services.ReviewResourceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import com.studies.api.core.review.Review;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:review-cache-db",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+public class ReviewCacheTests {
+
+    @Autowired
+    private ReviewResourceImpl resource;
+
+    @Autowired
+    private ReviewCache cache;
+
+    @Autowired
+    private ReviewRepository repository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Before
+    public void setupDb() {
+        repository.deleteAll();
+        cache.evictAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void readsReviewsFromTheCache() {
+
+        resource.createReview(new Review(1, 1, "a", "s", "c", "SA")).block();
+        statistics.clear();
+
+        assertEquals(1, countReviews(1));
+        assertEquals(1, countReviews(1));
+
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void readsPagesFromTheCachedReviews() {
+
+        resource.createReviews(asList(new Review(1, 1, "a", "s", "c", "SA"), new Review(1, 2, "a", "s", "c", "SA"), new Review(1, 3, "a", "s", "c", "SA"))).blockLast();
+        statistics.clear();
+
+        assertEquals(asList(1, 2), readReviewIds(1, 2, 0));
+        assertEquals(asList(3), readReviewIds(1, 2, 2));
+        assertEquals(asList(2, 3), readReviewIds(1, 0, 1));
+
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void writeOfAnotherProductKeepsCachedReviews() {
+
+        resource.createReview(new Review(1, 1, "a", "s", "c", "SA")).block();
+        assertEquals(1, countReviews(1));
+
+        resource.createReview(new Review(2, 1, "a", "s", "c", "SA")).block();
+        resource.deleteReviews(2).block();
+        statistics.clear();
+
+        assertEquals(1, countReviews(1));
+        assertEquals(0, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void createEvictsCachedReviews() {
+
+        resource.createReview(new Review(1, 1, "a", "s", "c", "SA")).block();
+        assertEquals(1, countReviews(1));
+
+        resource.createReview(new Review(1, 2, "a", "s", "c", "SA")).block();
+        statistics.clear();
+
+        assertEquals(2, countReviews(1));
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void batchCreateEvictsCachedReviewsOfAllItsProducts() {
+
+        resource.createReview(new Review(1, 1, "a", "s", "c", "SA")).block();
+        resource.createReview(new Review(2, 1, "a", "s", "c", "SA")).block();
+        assertEquals(1, countReviews(1));
+        assertEquals(1, countReviews(2));
+
+        resource.createReviews(asList(new Review(1, 2, "a", "s", "c", "SA"), new Review(2, 2, "a", "s", "c", "SA"))).blockLast();
+
+        assertEquals(2, countReviews(1));
+        assertEquals(2, countReviews(2));
+    }
+
+    @Test
+    public void deleteEvictsCachedReviews() {
+
+        resource.createReview(new Review(1, 1, "a", "s", "c", "SA")).block();
+        assertEquals(1, countReviews(1));
+
+        resource.deleteReviews(1).block();
+        statistics.clear();
+
+        assertEquals(0, countReviews(1));
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    private long countReviews(int productId) {
+        return resource.getReviews(productId, 0, 0).count().block();
+    }
+
+    private List<Integer> readReviewIds(int productId, int pageSize, int cursor) {
+        return resource.getReviews(productId, pageSize, cursor).map(Review::getReviewId).collectList().block();
+    }
+}
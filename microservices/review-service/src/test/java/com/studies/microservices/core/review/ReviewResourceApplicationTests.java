@@ -1,6 +1,7 @@
 package com.studies.microservices.core.review;
 
 import com.studies.microservices.core.review.persistence.ReviewRepository;
+import com.studies.microservices.core.review.services.ReviewCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -18,19 +19,25 @@ import com.studies.api.core.review.Review;
 import com.studies.api.event.Event;
 import com.studies.util.exceptions.InvalidInputException;
 
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static com.studies.api.event.Event.Type.CREATE;
+import static com.studies.api.event.Event.Type.CREATE_BATCH;
 import static com.studies.api.event.Event.Type.DELETE;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment=RANDOM_PORT, properties = {
         "logging.level.com.studies=DEBUG",
         "spring.datasource.url=jdbc:h2:mem:review-db",
-        "server.error.include-message=always"})
+        "server.error.include-message=always",
+        "app.batch.maxIds=3"})
 public class ReviewResourceApplicationTests {
 
     @Autowired
@@ -39,6 +46,9 @@ public class ReviewResourceApplicationTests {
     @Autowired
     private ReviewRepository repository;
 
+    @Autowired
+    private ReviewCache cache;
+
     @Autowired
     private Sink channels;
 
@@ -48,6 +58,7 @@ public class ReviewResourceApplicationTests {
     public void setupDb() {
         input = (AbstractMessageChannel) channels.input();
         repository.deleteAll();
+        cache.evictAll();
     }
 
     @Test
@@ -69,6 +80,68 @@ public class ReviewResourceApplicationTests {
                 .jsonPath("$[2].reviewId").isEqualTo(3);
     }
 
+    @Test
+    public void getReviewsByProductIds() {
+
+        sendCreateReviewEvent(1, 1);
+        sendCreateReviewEvent(1, 2);
+        sendCreateReviewEvent(2, 1);
+        sendCreateReviewEvent(3, 1);
+
+        getAndVerifyReviewsByProductId("?productIds=1,2", OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    public void getReviewsByDuplicateProductIds() {
+
+        sendCreateReviewEvent(1, 1);
+
+        getAndVerifyReviewsByProductId("?productIds=1,1,1,1,1", OK)
+                .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    public void getReviewsTooManyProductIds() {
+
+        getAndVerifyReviewsByProductId("?productIds=1,2,3,4", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/review")
+                .jsonPath("$.message").isEqualTo("Too many productIds: 4, at most 3 are allowed");
+    }
+
+    @Test
+    public void createReviewsInBatch() {
+
+        int productId = 1;
+
+        List<Review> reviews = IntStream.rangeClosed(1, 3)
+                .mapToObj(id -> new Review(productId, id, "Author " + id, "Subject " + id, "Content " + id, "SA"))
+                .collect(Collectors.toList());
+        input.send(new GenericMessage<>(new Event(CREATE_BATCH, productId, reviews)));
+
+        assertEquals(3, repository.findByProductId(productId).size());
+
+        getAndVerifyReviewsByProductId(productId, OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    public void getReviewsPage() {
+
+        int productId = 1;
+
+        IntStream.rangeClosed(1, 5).forEach(reviewId -> sendCreateReviewEvent(productId, reviewId));
+
+        getAndVerifyReviewsByProductId("?productId=" + productId + "&pageSize=2&cursor=2", OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].reviewId").isEqualTo(3)
+                .jsonPath("$[1].reviewId").isEqualTo(4);
+
+        getAndVerifyReviewsByProductId("?productId=" + productId + "&pageSize=2&cursor=4", OK)
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].reviewId").isEqualTo(5);
+    }
+
     @Test
     public void duplicateError() {
 
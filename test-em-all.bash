@@ -209,13 +209,15 @@ function testCircuitBreaker() {
         assertEqual "Did not observe any item or terminal signal within 2000ms" "${message:0:57}"
     done
 
-    # Verify that the circuit breaker now is open by running the slow call again, verify it gets 200 back, i.e. fail fast works, and a response from the fallback method.
+    # Verify that the circuit breaker now is open by running the slow call again, verify it gets 200 back, i.e. fail fast works,
+    # and the last known good product information from the fallback cache.
     assertCurl 200 "curl -k https://$HOST:$PORT/product-composite/$PROD_ID_REVS_RECS?delay=3 $AUTH -s"
-    assertEqual "Fallback product2" "$(echo "$RESPONSE" | jq -r .name)"
+    assertEqual "product name C" "$(echo "$RESPONSE" | jq -r .name)"
 
-    # Also, verify that the circuit breaker is open by running a normal call, verify it also gets 200 back and a response from the fallback method.
+    # Also, verify that a normal call gets 200 back and the last known good product information,
+    # either from the aggregate cache or from the fallback cache.
     assertCurl 200 "curl -k https://$HOST:$PORT/product-composite/$PROD_ID_REVS_RECS $AUTH -s"
-    assertEqual "Fallback product2" "$(echo "$RESPONSE" | jq -r .name)"
+    assertEqual "product name C" "$(echo "$RESPONSE" | jq -r .name)"
 
     # Verify that a 404 (Not Found) error is returned for a non existing productId ($PROD_ID_NOT_FOUND) from the fallback method.
     assertCurl 404 "curl -k https://$HOST:$PORT/product-composite/$PROD_ID_NOT_FOUND $AUTH -s"
@@ -228,11 +230,11 @@ function testCircuitBreaker() {
     # Verify that the circuit breaker is in half open state
     assertEqual "HALF_OPEN" "$($EXEC wget product-composite:${MGM_PORT}/actuator/health -qO - | jq -r .components.circuitBreakers.details.product.details.state)"
 
-    # Close the circuit breaker by running three normal calls in a row
+    # Close the circuit breaker by running three calls in a row with a delay below the timeout, i.e. that bypass the aggregate cache
     # Also, verify that we get 200 back and a response based on information in the product database
     for ((n=0; n<3; n++))
     do
-        assertCurl 200 "curl -k https://$HOST:$PORT/product-composite/$PROD_ID_REVS_RECS $AUTH -s"
+        assertCurl 200 "curl -k https://$HOST:$PORT/product-composite/$PROD_ID_REVS_RECS?delay=1 $AUTH -s"
         assertEqual "product name C" "$(echo "$RESPONSE" | jq -r .name)"
     done
 
@@ -0,0 +1,18 @@
+package com.studies.util.exceptions;
+
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException() {
+    }
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+
+    public ServiceOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ServiceOverloadedException(Throwable cause) {
+        super(cause);
+    }
+}
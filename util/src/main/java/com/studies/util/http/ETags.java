@@ -0,0 +1,54 @@
+package com.studies.util.http;
+
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Conditional GET support for reactive endpoints.
+ * <p>
+ * The ETag of a response is computed from the entity versions it is based on, not from the serialized body. If it
+ * matches the If-None-Match header of the request, the response is a 304 - Not Modified without a body, and the body
+ * is never serialized. The current exchange is looked up in the Reactor context, where
+ * {@link ExchangeContextFilter} puts it.
+ */
+public class ETags {
+
+    private ETags() {
+    }
+
+    public static <T> Mono<T> checkNotModified(Mono<T> body, Function<T, String> etag) {
+        return body.filterWhen(value -> isNotModified(etag.apply(value)).map(notModified -> !notModified));
+    }
+
+    /**
+     * Collects the elements to compute the ETag from all of them, only use it for bounded results, e.g. pages.
+     */
+    public static <T> Flux<T> checkNotModified(Flux<T> body, Function<List<T>, String> etag) {
+        return checkNotModified(body.collectList(), etag).flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * Hashes the parts, e.g. ids and versions, into an ETag value.
+     */
+    public static String hash(List<?> parts) {
+        StringBuilder sb = new StringBuilder();
+        parts.forEach(part -> sb.append(part).append(';'));
+        return DigestUtils.md5DigestAsHex(sb.toString().getBytes(UTF_8));
+    }
+
+    private static Mono<Boolean> isNotModified(String etag) {
+        if (etag == null) return Mono.just(false);
+
+        return Mono.subscriberContext()
+                .map(context -> ServerWebExchangeContextFilter.get(context)
+                        .map(exchange -> exchange.checkNotModified(etag))
+                        .orElse(false));
+    }
+}
@@ -0,0 +1,11 @@
+package com.studies.util.http;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+
+/**
+ * Makes the current exchange available in the Reactor context, as used by {@link ETags}.
+ */
+@Component
+public class ExchangeContextFilter extends ServerWebExchangeContextFilter {
+}
@@ -1,14 +1,18 @@
 package com.studies.util.http;
 
+import com.studies.util.exceptions.DeadlineExceededException;
 import com.studies.util.exceptions.InvalidInputException;
 import com.studies.util.exceptions.NotFoundException;
+import com.studies.util.exceptions.ServiceOverloadedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 
+import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 
 @RestControllerAdvice
@@ -31,6 +35,20 @@ class GlobalControllerExceptionHandler {
         return createHttpErrorInfo(UNPROCESSABLE_ENTITY, request, ex);
     }
 
+    @ResponseStatus(GATEWAY_TIMEOUT)
+    @ExceptionHandler(DeadlineExceededException.class)
+    public @ResponseBody HttpErrorInfo handleDeadlineExceededException(ServerHttpRequest request, Exception ex) {
+
+        return createHttpErrorInfo(GATEWAY_TIMEOUT, request, ex);
+    }
+
+    @ResponseStatus(SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public @ResponseBody HttpErrorInfo handleServiceOverloadedException(ServerHttpRequest request, Exception ex) {
+
+        return createHttpErrorInfo(SERVICE_UNAVAILABLE, request, ex);
+    }
+
     private HttpErrorInfo createHttpErrorInfo(HttpStatus httpStatus, ServerHttpRequest request, Exception ex) {
         final String path = request.getPath().pathWithinApplication().value();
         final String message = ex.getMessage();
@@ -0,0 +1,107 @@
+package com.studies.util.http;
+
+import com.studies.util.exceptions.DeadlineExceededException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The point in time when the response to the current request has to be sent at the latest.
+ * <p>
+ * The deadline is carried in the Reactor context of the request, see {@link RequestDeadlineFilter}, and passed on
+ * to downstream services as the remaining number of milliseconds in the {@link #HEADER} request header. Relative
+ * budgets are used on the wire so that clock skew between hosts doesn't matter.
+ */
+public class RequestDeadline {
+
+    public static final String HEADER = "X-Request-Deadline-Ms";
+
+    private final long expiresAtNanos;
+
+    private RequestDeadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static RequestDeadline inMillis(long budgetMs) {
+        return new RequestDeadline(System.nanoTime() + Duration.ofMillis(budgetMs).toNanos());
+    }
+
+    public long remainingMillis() {
+        return Duration.ofNanos(expiresAtNanos - System.nanoTime()).toMillis();
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
+
+    /**
+     * Fails with a {@link DeadlineExceededException} if the deadline of the current request, if any, has passed.
+     */
+    public static void verify(Context context) {
+        context.<RequestDeadline>getOrEmpty(RequestDeadline.class).ifPresent(deadline -> {
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException("Deadline exceeded by " + -deadline.remainingMillis() + " ms, refuses to start the work");
+            }
+        });
+    }
+
+    /**
+     * Completes empty if the current request can still finish in time, else fails with a
+     * {@link DeadlineExceededException}. Check it right before starting expensive work.
+     */
+    public static Mono<Void> check() {
+        return Mono.subscriberContext().doOnNext(RequestDeadline::verify).then();
+    }
+
+    /**
+     * Gives up on the mono with a {@link DeadlineExceededException} when the deadline of the current request, if any,
+     * has passed. Meant for work that runs without the deadline, e.g. a call shared with other requests, see
+     * {@link #detach(Context)}.
+     */
+    public static <T> Mono<T> timeout(Mono<T> mono) {
+        return Mono.subscriberContext().flatMap(context -> {
+
+            if (!context.hasKey(RequestDeadline.class)) return mono;
+
+            verify(context);
+            long remainingMs = context.<RequestDeadline>get(RequestDeadline.class).remainingMillis();
+
+            return mono
+                    .timeout(Duration.ofMillis(remainingMs))
+                    .onErrorMap(TimeoutException.class, ex -> new DeadlineExceededException("No result within the remaining " + remainingMs + " ms", ex));
+        });
+    }
+
+    /**
+     * Removes the deadline from the context, for work that isn't done for the current request alone.
+     */
+    public static Context detach(Context context) {
+        return context.delete(RequestDeadline.class);
+    }
+
+    /**
+     * WebClient filter that passes the remaining budget of the current request on in the {@link #HEADER} header, and
+     * gives up on the call when the budget is used up.
+     */
+    public static ExchangeFilterFunction propagate() {
+        return (request, next) -> Mono.subscriberContext().flatMap(context -> {
+
+            if (!context.hasKey(RequestDeadline.class)) return next.exchange(request);
+
+            verify(context);
+            long remainingMs = context.<RequestDeadline>get(RequestDeadline.class).remainingMillis();
+
+            ClientRequest withDeadline = ClientRequest.from(request)
+                    .header(HEADER, String.valueOf(remainingMs))
+                    .build();
+
+            return next.exchange(withDeadline)
+                    .timeout(Duration.ofMillis(remainingMs))
+                    .onErrorMap(TimeoutException.class, ex -> new DeadlineExceededException("No response from " + request.url() + " within the remaining " + remainingMs + " ms", ex));
+        });
+    }
+}
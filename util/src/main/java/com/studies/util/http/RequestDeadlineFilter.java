@@ -0,0 +1,60 @@
+package com.studies.util.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Puts the {@link RequestDeadline} of incoming requests in the Reactor context.
+ * <p>
+ * The deadline is taken from the remaining budget in the {@link RequestDeadline#HEADER} header, minus
+ * app.deadline.minRemainingMs that is kept for sending the response. Requests without the header get
+ * app.deadline.defaultBudgetMs, or no deadline at all if it is 0, which is the default.
+ */
+@Component
+public class RequestDeadlineFilter implements WebFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestDeadlineFilter.class);
+
+    private final long defaultBudgetMs;
+    private final long minRemainingMs;
+
+    @Autowired
+    public RequestDeadlineFilter(
+            @Value("${app.deadline.defaultBudgetMs:0}") long defaultBudgetMs,
+            @Value("${app.deadline.minRemainingMs:0}") long minRemainingMs) {
+
+        this.defaultBudgetMs = defaultBudgetMs;
+        this.minRemainingMs = minRemainingMs;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+
+        RequestDeadline deadline = getDeadline(exchange);
+        if (deadline == null) return chain.filter(exchange);
+
+        return chain.filter(exchange).subscriberContext(context -> context.put(RequestDeadline.class, deadline));
+    }
+
+    private RequestDeadline getDeadline(ServerWebExchange exchange) {
+
+        // A budget in the header that is already used up still gives a deadline, so that the work is refused
+        String header = exchange.getRequest().getHeaders().getFirst(RequestDeadline.HEADER);
+        if (header != null) {
+            try {
+                return RequestDeadline.inMillis(Long.parseLong(header) - minRemainingMs);
+            } catch (NumberFormatException ex) {
+                LOG.warn("Ignores an invalid {} header: {}", RequestDeadline.HEADER, header);
+            }
+        }
+
+        return defaultBudgetMs > 0 ? RequestDeadline.inMillis(defaultBudgetMs - minRemainingMs) : null;
+    }
+}
@@ -0,0 +1,134 @@
+package com.studies.util.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Makes the writes of consumed events without waiting for each one to complete, so that one consumer thread can keep
+ * up to {@code maxInFlight} writes in flight.
+ * <p>
+ * Writes of events with the same key are chained, so they are applied in the order the events were consumed, as they
+ * are when one write at a time is made. When {@code maxInFlight} events are in flight, the consumer thread waits for
+ * one of them to be acknowledged before it takes the next event, so the backlog stays in the broker.
+ * <p>
+ * Events are only kept in flight if they are acknowledged manually, see {@link ManualAcknowledgements}. An event is
+ * acknowledged once its write has completed, and the events of a consumer thread are acknowledged in the order they
+ * were consumed, so that a Kafka offset is never committed before all events up to it are written. A failed write is
+ * retried like the binder does, with {@code maxAttempts} and a backoff, and the event is then rejected, i.e.
+ * dead-lettered. Events the binder acknowledges itself are written one at a time on the consumer thread instead, failed
+ * writes are retried and dead-lettered by the binder.
+ */
+public class BoundedEventWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedEventWriter.class);
+
+    private final int maxInFlight;
+    private final Retry retry;
+    private final Semaphore permits;
+    private final Map<Object, CompletableFuture<Void>> lastWriteByKey = new ConcurrentHashMap<>();
+    private final ThreadLocal<CompletableFuture<Void>> lastAcknowledgement = ThreadLocal.withInitial(() -> CompletableFuture.completedFuture(null));
+    private final AtomicLong failures = new AtomicLong();
+
+    public BoundedEventWriter(int maxInFlight, int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.retry = Retry.backoff(Math.max(0, maxAttempts - 1), initialBackoff)
+                .maxBackoff(maxBackoff)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+        this.permits = new Semaphore(this.maxInFlight);
+    }
+
+    /**
+     * @param write          subscribed once per attempt, exceptions it throws fail the attempt as well
+     * @param acknowledgement of the event, or null if the binder acknowledges it once the listener returns
+     */
+    public void write(Object key, Supplier<Mono<?>> write, EventAcknowledgement acknowledgement) {
+
+        if (acknowledgement == null) {
+            write.get().block();
+            return;
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a write of an event to complete", e);
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = key == null ? null : lastWriteByKey.put(key, done);
+
+        CompletableFuture<Void> previousAcknowledgement = lastAcknowledgement.get();
+        CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+        lastAcknowledgement.set(acknowledged);
+
+        Mono<?> attempts = Mono.defer(write).retryWhen(retry);
+        (previous == null ? attempts : Mono.fromFuture(previous).then(attempts))
+                .doFinally(signal -> {
+                    if (key != null) lastWriteByKey.remove(key, done);
+                    done.complete(null);
+                })
+                .subscribe(
+                        result -> {},
+                        error -> acknowledgeInOrder(previousAcknowledgement, acknowledged, () -> {
+                            failures.incrementAndGet();
+                            LOG.error("Failed to write the event with key: {}, the event is dead-lettered", key, error);
+                            acknowledgement.reject(error);
+                        }),
+                        () -> acknowledgeInOrder(previousAcknowledgement, acknowledged, acknowledgement::acknowledge));
+    }
+
+    private void acknowledgeInOrder(CompletableFuture<Void> previous, CompletableFuture<Void> acknowledged, Runnable acknowledgement) {
+        previous.whenComplete((result, error) -> {
+            try {
+                acknowledgement.run();
+
+            } catch (RuntimeException e) {
+                // The event is redelivered if the broker hasn't got the acknowledgement, e.g. once the connection is lost
+                LOG.error("Failed to acknowledge an event", e);
+
+            } finally {
+                acknowledged.complete(null);
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Waits for the events in flight to be acknowledged, returns false if they weren't within the timeout.
+     */
+    public boolean awaitIdle(Duration timeout) {
+        try {
+            if (!permits.tryAcquire(maxInFlight, timeout.toMillis(), TimeUnit.MILLISECONDS)) return false;
+
+            permits.release(maxInFlight);
+            return true;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * @return the number of events that were dead-lettered since their writes failed
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+}
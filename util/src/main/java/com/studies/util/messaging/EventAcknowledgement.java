@@ -0,0 +1,15 @@
+package com.studies.util.messaging;
+
+/**
+ * Manual acknowledgement of a consumed event, made by {@link BoundedEventWriter} once the write of the event has
+ * completed, see {@link ManualAcknowledgements}.
+ */
+public interface EventAcknowledgement {
+
+    void acknowledge();
+
+    /**
+     * Sends the event to the dead-letter queue of the binding instead, it isn't redelivered.
+     */
+    void reject(Throwable error);
+}
@@ -0,0 +1,191 @@
+package com.studies.util.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes the items of events consumed at the same time, on the consumer threads of a binding, together in batches.
+ * <p>
+ * Every consumer thread adds the items of its event to the current batch and waits until the batch is written. The
+ * batch is written by the thread that fills it up to {@code batchSize} items, or by the first one that has waited for
+ * {@code linger}, so batches are as large as the number of consumer threads, at most, e.g. the concurrency of the
+ * binding.
+ * <p>
+ * The writer returns the items it failed to write, all of them are failed if it throws. Every consumer thread writes
+ * the items of its own event that weren't written with its fallback, one at a time, so that an event that still fails
+ * is retried and dead-lettered by the binder like any other. An event is only done, and acknowledged, once its items
+ * are written, and the events of a consumer thread are written in the order they are consumed.
+ * <p>
+ * Events consumed on other threads can still be waiting in a batch. A write that must not overtake them, e.g. a delete
+ * of the same key, calls {@link #flush()} first.
+ */
+public class EventBatcher<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventBatcher.class);
+
+    private final int batchSize;
+    private final long lingerMs;
+    private final Function<List<T>, Collection<T>> writer;
+
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    // Batches that are taken, but not yet written or with fallbacks still to be made
+    private final Set<Batch> unsettled = ConcurrentHashMap.newKeySet();
+
+    private Batch current = new Batch();
+
+    public EventBatcher(int batchSize, Duration linger, Function<List<T>, Collection<T>> writer) {
+        this.batchSize = batchSize;
+        this.lingerMs = linger.toMillis();
+        this.writer = writer;
+    }
+
+    /**
+     * Adds the items to the current batch, waits until the batch is written and writes the items the batch failed to
+     * write with the fallback, on the calling thread. Exceptions of the fallback are passed on.
+     */
+    public void write(List<T> items, Consumer<T> fallback) {
+
+        Batch batch;
+        boolean full;
+        synchronized (this) {
+            batch = current;
+            batch.items.addAll(items);
+            batch.participants.incrementAndGet();
+            full = batch.items.size() >= batchSize;
+            if (full) takeCurrent();
+        }
+
+        try {
+            if (full || (!batch.awaitWritten(lingerMs) && take(batch))) write(batch);
+
+            Set<T> notWritten = batch.notWritten.join();
+            items.stream().filter(notWritten::contains).forEach(fallback);
+
+        } finally {
+            settle(batch);
+        }
+    }
+
+    /**
+     * Writes the current batch on the calling thread and waits until every batch taken so far is settled, i.e. written
+     * and with the fallbacks of all its consumer threads made.
+     */
+    public void flush() {
+
+        Batch batch = null;
+        List<CompletableFuture<Void>> pending;
+        synchronized (this) {
+            if (!current.items.isEmpty()) batch = takeCurrent();
+
+            pending = new ArrayList<>();
+            unsettled.forEach(b -> pending.add(b.settled));
+        }
+
+        if (batch != null) write(batch);
+
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * @return false if another consumer thread has taken the batch already
+     */
+    private synchronized boolean take(Batch batch) {
+        if (current != batch) return false;
+
+        takeCurrent();
+        return true;
+    }
+
+    private Batch takeCurrent() {
+        Batch taken = current;
+        unsettled.add(taken);
+        current = new Batch();
+        return taken;
+    }
+
+    private void write(Batch batch) {
+
+        // By identity, equal items of different events are told apart. All of them count as not written until the
+        // writer has returned, so that whatever it throws, the consumer threads fall back instead of waiting forever.
+        Set<T> notWritten = Collections.newSetFromMap(new IdentityHashMap<>());
+        notWritten.addAll(batch.items);
+        try {
+            Collection<T> failed = writer.apply(batch.items);
+            notWritten.clear();
+            notWritten.addAll(failed);
+
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to write a batch of {} items, they are written one at a time: {}", batch.items.size(), e.toString());
+
+        } finally {
+            fallbacks.addAndGet(notWritten.size());
+            batch.notWritten.complete(notWritten);
+        }
+    }
+
+    private void settle(Batch batch) {
+        if (batch.participants.decrementAndGet() > 0) return;
+
+        unsettled.remove(batch);
+        batch.settled.complete(null);
+    }
+
+    /**
+     * @return the number of items the batches failed to write, which were written one at a time instead
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * @return the number of items in the current batch, waiting to be written
+     */
+    public synchronized int getPending() {
+        return current.items.size();
+    }
+
+    private final class Batch {
+
+        private final List<T> items = new ArrayList<>();
+
+        // Consumer threads with items in the batch that haven't settled yet
+        private final AtomicInteger participants = new AtomicInteger();
+
+        private final CompletableFuture<Set<T>> notWritten = new CompletableFuture<>();
+
+        private final CompletableFuture<Void> settled = new CompletableFuture<>();
+
+        private boolean awaitWritten(long timeoutMs) {
+            try {
+                notWritten.get(timeoutMs, TimeUnit.MILLISECONDS);
+                return true;
+
+            } catch (TimeoutException | ExecutionException e) {
+                return false;
+
+            } catch (InterruptedException e) {
+                // Waits for the batch all the same, items that are added to a batch must not be written twice
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
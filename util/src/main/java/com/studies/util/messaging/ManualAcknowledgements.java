@@ -0,0 +1,85 @@
+package com.studies.util.messaging;
+
+import com.rabbitmq.client.Channel;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Takes the manual acknowledgement of a consumed event from the headers the binder adds to its message, once the input
+ * binding is configured for it, with the RabbitMQ consumer property acknowledgeMode: MANUAL or the Kafka consumer
+ * property autoCommitOffset: false.
+ * <p>
+ * RabbitMQ dead-letters a rejected event itself, to the DLQ bound to the queue with autoBindDlq. Kafka doesn't, so a
+ * rejected event is published to the dead-letter topic first, and then acknowledged like any other.
+ */
+public final class ManualAcknowledgements {
+
+    private ManualAcknowledgements() {
+    }
+
+    /**
+     * @return the acknowledgement of the event, or null if the binder acknowledges it once the listener returns
+     */
+    public static EventAcknowledgement of(Object payload, MessageHeaders headers, Supplier<MessageChannel> kafkaDeadLetterChannel) {
+
+        Channel channel = headers.get(AmqpHeaders.CHANNEL, Channel.class);
+        Long deliveryTag = headers.get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        if (channel != null && deliveryTag != null) return rabbit(channel, deliveryTag);
+
+        Acknowledgment acknowledgment = headers.get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+        if (acknowledgment != null) return kafka(acknowledgment, payload, kafkaDeadLetterChannel);
+
+        return null;
+    }
+
+    private static EventAcknowledgement rabbit(Channel channel, long deliveryTag) {
+        return new EventAcknowledgement() {
+
+            @Override
+            public void acknowledge() {
+                try {
+                    channel.basicAck(deliveryTag, false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void reject(Throwable error) {
+                try {
+                    channel.basicReject(deliveryTag, false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private static EventAcknowledgement kafka(Acknowledgment acknowledgment, Object payload, Supplier<MessageChannel> deadLetterChannel) {
+        return new EventAcknowledgement() {
+
+            @Override
+            public void acknowledge() {
+                acknowledgment.acknowledge();
+            }
+
+            @Override
+            public void reject(Throwable error) {
+                // With the exception headers of the dead-letter records published by the binder
+                deadLetterChannel.get().send(MessageBuilder.withPayload(payload)
+                        .setHeader("x-exception-fqcn", error.getClass().getName())
+                        .setHeader("x-exception-message", String.valueOf(error.getMessage()))
+                        .build());
+                acknowledgment.acknowledge();
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.studies.util.persistence;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.model.ConvertingPropertyAccessor;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Bulk writes of Spring Data MongoDB entities that the repositories don't offer.
+ */
+public final class MongoBulkWrites {
+
+    private MongoBulkWrites() {
+    }
+
+    /**
+     * Inserts the new entities with one unordered bulkWrite, an entity that can't be inserted, e.g. a duplicate,
+     * doesn't keep the others from being inserted. Entities with a version property are inserted with the first
+     * version, as by an insert through a repository.
+     *
+     * @return the indexes of the entities that weren't inserted
+     */
+    public static <E> Mono<Set<Integer>> insertUnordered(ReactiveMongoOperations operations, Class<E> type, List<E> entities) {
+        if (entities.isEmpty()) return Mono.just(emptySet());
+
+        MongoPersistentEntity<?> persistentEntity = operations.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        List<WriteModel<Document>> inserts = entities.stream()
+                .map(e -> new InsertOneModel<>(toDocument(operations, persistentEntity, e)))
+                .collect(toList());
+
+        return operations.getCollection(operations.getCollectionName(type))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(inserts, new BulkWriteOptions().ordered(false))))
+                .map(result -> Collections.<Integer>emptySet())
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just(e.getWriteErrors().stream()
+                        .map(BulkWriteError::getIndex)
+                        .collect(toSet())));
+    }
+
+    private static Document toDocument(ReactiveMongoOperations operations, MongoPersistentEntity<?> persistentEntity, Object entity) {
+
+        PersistentPropertyAccessor<Object> accessor = new ConvertingPropertyAccessor<>(persistentEntity.getPropertyAccessor(entity), operations.getConverter().getConversionService());
+
+        MongoPersistentProperty version = persistentEntity.getVersionProperty();
+        if (version != null) accessor.setProperty(version, 0);
+
+        Document document = new Document();
+        operations.getConverter().write(accessor.getBean(), document);
+        return document;
+    }
+}
@@ -0,0 +1,92 @@
+package com.studies.util.messaging;
+
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Sends events to the input channel of a message processor from several threads at once, as the consumer threads of
+ * a binding do. The test binder calls the message processor on the sending thread.
+ */
+public class ConcurrentConsumers implements AutoCloseable {
+
+    private final MessageChannel input;
+
+    private final ExecutorService consumers;
+
+    public ConcurrentConsumers(MessageChannel input, int threads) {
+        this.input = input;
+        this.consumers = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Sends the event on a consumer thread, without waiting for it to be processed.
+     */
+    public Future<Void> send(Object event) {
+        return consumers.submit(sendOnCallingThread(event));
+    }
+
+    /**
+     * Sends each event on a consumer thread of its own, at the same time, and waits until all of them are processed.
+     */
+    public List<Future<Void>> sendAll(List<?> events) throws InterruptedException {
+        return consumers.invokeAll(events.stream().map(this::sendOnCallingThread).collect(toList()));
+    }
+
+    /**
+     * Sends the event on the calling thread, i.e. one more consumer thread.
+     */
+    public void sendNow(Object event) throws Exception {
+        sendOnCallingThread(event).call();
+    }
+
+    /**
+     * @return the number of sends the message processor failed with an exception
+     */
+    public static long countFailed(List<Future<Void>> sends) throws InterruptedException {
+        long failed = 0;
+        for (Future<Void> send : sends) {
+            try {
+                send.get();
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof MessagingException)) throw new IllegalStateException("Unexpected failure of a send", e.getCause());
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Waits until the condition is met, e.g. an event is parked in a batch, fails if it isn't within the timeout.
+     */
+    public static void awaitUntil(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("Condition not met within " + timeout.toMillis() + " ms");
+            Thread.sleep(10);
+        }
+    }
+
+    @Override
+    public void close() {
+        consumers.shutdownNow();
+    }
+
+    private Callable<Void> sendOnCallingThread(Object event) {
+        return () -> {
+            input.send(new GenericMessage<>(event));
+            return null;
+        };
+    }
+}